@@ -0,0 +1,111 @@
+package engine;
+
+import java.util.Random;
+
+/**
+ * Walker/Vose alias table for O(1) sampling from a fixed discrete distribution.
+ * Built once from a list of weights; each sample is two random numbers and
+ * two array reads.
+ */
+public final class AliasTable {
+
+    /** Probability of keeping column i instead of jumping to its alias. */
+    private final double[] probability;
+    /** Alias outcome of each column. */
+    private final int[] alias;
+    /** Normalised probability of each outcome, kept for expected-rate counters. */
+    private final double[] outcomeProbability;
+
+    /**
+     * Builds the table using Vose's method.
+     *
+     * @param weights
+     *            non-negative weight of each outcome; at least one must be positive.
+     */
+    public AliasTable(final double[] weights) {
+        int n = weights.length;
+        if (n == 0)
+            throw new IllegalArgumentException("AliasTable needs at least one outcome");
+
+        double total = 0.0;
+        for (double w : weights) {
+            if (w < 0 || Double.isNaN(w) || Double.isInfinite(w))
+                throw new IllegalArgumentException("Invalid weight: " + w);
+            total += w;
+        }
+        if (total <= 0.0)
+            throw new IllegalArgumentException("AliasTable needs a positive total weight");
+
+        this.probability = new double[n];
+        this.alias = new int[n];
+        this.outcomeProbability = new double[n];
+
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+
+        for (int i = 0; i < n; i++) {
+            outcomeProbability[i] = weights[i] / total;
+            scaled[i] = outcomeProbability[i] * n;
+            if (scaled[i] < 1.0)
+                small[smallCount++] = i;
+            else
+                large[largeCount++] = i;
+        }
+
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+
+            probability[less] = scaled[less];
+            alias[less] = more;
+
+            scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+            if (scaled[more] < 1.0)
+                small[smallCount++] = more;
+            else
+                large[largeCount++] = more;
+        }
+        // Leftovers are 1.0 up to rounding error.
+        while (largeCount > 0) {
+            int i = large[--largeCount];
+            probability[i] = 1.0;
+            alias[i] = i;
+        }
+        while (smallCount > 0) {
+            int i = small[--smallCount];
+            probability[i] = 1.0;
+            alias[i] = i;
+        }
+    }
+
+    /**
+     * Draws one outcome.
+     *
+     * @param random
+     *            random source.
+     * @return index of the chosen outcome.
+     */
+    public int sample(final Random random) {
+        int column = random.nextInt(probability.length);
+        return random.nextDouble() < probability[column] ? column : alias[column];
+    }
+
+    /**
+     * @return number of outcomes.
+     */
+    public int size() {
+        return probability.length;
+    }
+
+    /**
+     * @param outcome
+     *            index of the outcome.
+     * @return normalised probability of the outcome.
+     */
+    public double getProbability(final int outcome) {
+        return outcomeProbability[outcome];
+    }
+}
@@ -0,0 +1,171 @@
+package engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * Logging handler that hands records to a background writer.
+ *
+ * publish() only puts the record in a bounded ring buffer; formatting and
+ * I/O happen on the "log-writer" thread, which passes each record on to the
+ * wrapped handlers. When the ring is full the record is dropped and
+ * counted, and the writer reports the count in a warning once there is
+ * room again.
+ */
+public final class AsyncLogHandler extends Handler {
+
+    /** Writer sleep when the ring is empty. */
+    private static final long IDLE_NANOS = 2_000_000L;
+
+    /** Handlers doing the actual output. */
+    private final Handler[] targets;
+
+    /** Ring slots and their sequence numbers (bounded MPSC queue). */
+    private final LogRecord[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    /** Next slot to claim; shared by producers. */
+    private final AtomicLong tail = new AtomicLong();
+    /** Next slot to read; writer thread only. */
+    private long head;
+
+    /** Records dropped because the ring was full. */
+    private final AtomicLong dropped = new AtomicLong();
+    /** Drops already reported by the writer. */
+    private long droppedReported;
+
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    /**
+     * Starts the writer thread.
+     *
+     * @param capacity
+     *            Ring size, rounded up to a power of two.
+     * @param targets
+     *            Handlers that receive the records on the writer thread.
+     */
+    public AsyncLogHandler(final int capacity, final Handler... targets) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.slots = new LogRecord[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++)
+            sequences.set(i, i);
+        this.targets = targets.clone();
+
+        this.writer = new Thread(this::writeLoop, "log-writer");
+        this.writer.setDaemon(true);
+        this.writer.setPriority(Thread.MIN_PRIORITY);
+        this.writer.start();
+    }
+
+    @Override
+    public void publish(final LogRecord record) {
+        if (!isLoggable(record) || !running) return;
+
+        long t;
+        while (true) {
+            t = tail.get();
+            long dif = sequences.get((int) t & mask) - t;
+            if (dif == 0) {
+                if (tail.compareAndSet(t, t + 1)) break;
+            } else if (dif < 0) {
+                dropped.incrementAndGet();
+                return;
+            }
+            // Another producer claimed the slot first; try the next one.
+        }
+        int i = (int) t & mask;
+        slots[i] = record;
+        sequences.lazySet(i, t + 1);
+    }
+
+    /**
+     * Takes the next record. Writer thread only.
+     *
+     * @return Record, or null if the ring is empty.
+     */
+    private LogRecord poll() {
+        int i = (int) head & mask;
+        if (sequences.get(i) != head + 1) return null;
+        LogRecord record = slots[i];
+        slots[i] = null;
+        sequences.lazySet(i, head + mask + 1);
+        head++;
+        return record;
+    }
+
+    private void writeLoop() {
+        while (running) {
+            if (drain() == 0)
+                LockSupport.parkNanos(IDLE_NANOS);
+        }
+        drain();
+    }
+
+    /**
+     * Writes every queued record, reports drops and flushes.
+     *
+     * @return Number of records written.
+     */
+    private int drain() {
+        int count = 0;
+        LogRecord record;
+        while ((record = poll()) != null) {
+            for (Handler target : targets)
+                target.publish(record);
+            count++;
+        }
+
+        long lost = dropped.get();
+        if (lost != droppedReported) {
+            LogRecord warning = new LogRecord(Level.WARNING,
+                    (lost - droppedReported) + " log records dropped, logging is falling behind.");
+            for (Handler target : targets)
+                target.publish(warning);
+            droppedReported = lost;
+            count++;
+        }
+
+        if (count > 0)
+            for (Handler target : targets)
+                target.flush();
+        return count;
+    }
+
+    /**
+     * Wakes the writer so queued records are written soon. Does not wait.
+     */
+    @Override
+    public void flush() {
+        LockSupport.unpark(writer);
+    }
+
+    /**
+     * Writes every queued record and closes the wrapped handlers.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Handler target : targets)
+            target.close();
+    }
+
+    /**
+     * @return Records dropped because the ring was full.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+}
@@ -0,0 +1,78 @@
+package engine;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+
+/**
+ * Output device of the {@link AudioMixer}.
+ *
+ * The mixer opens the backend on its own thread and then writes mixed PCM
+ * to it; write is expected to block for roughly the duration of the data,
+ * which is what paces the mixer. The backend is chosen at startup with
+ * -Dinvaders.audio.backend=javasound|null|recording.
+ */
+public interface AudioBackend {
+
+    /**
+     * Opens the device.
+     *
+     * @param format
+     *            Format of the PCM passed to write.
+     * @param bufferFrames
+     *            Requested device buffer, in frames.
+     * @throws LineUnavailableException
+     *             If the device cannot be opened.
+     */
+    void open(AudioFormat format, int bufferFrames) throws LineUnavailableException;
+
+    /**
+     * Plays mixed PCM, blocking until the device has room for it.
+     *
+     * @param data
+     *            PCM in the format given to open.
+     * @param length
+     *            Number of bytes to write.
+     * @throws IllegalStateException
+     *             If the device has failed.
+     */
+    void write(byte[] data, int length);
+
+    /**
+     * Releases the device. The backend may be opened again afterwards.
+     */
+    void close();
+
+    /**
+     * @return Short name for logs.
+     */
+    String getName();
+
+    /**
+     * Called by the mixer thread when a sound starts playing.
+     *
+     * @param resourcePath
+     *            Sound resource.
+     * @param framePosition
+     *            Output frames written before the sound starts.
+     */
+    default void soundStarted(final String resourcePath, final long framePosition) {
+    }
+
+    /**
+     * Creates a backend by name.
+     *
+     * @param name
+     *            "javasound", "null" or "recording".
+     * @return Backend; JavaSound for unknown names.
+     */
+    static AudioBackend create(final String name) {
+        switch (name) {
+            case "null":
+                return new NullAudioBackend();
+            case "recording":
+                return new RecordingAudioBackend();
+            default:
+                return new JavaSoundBackend();
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package engine;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Benchmark harness for the audio path.
+ *
+ * Measures, and writes to a JSON report:
+ * - latency and allocation of the SoundManager calls made by the game thread,
+ * - time from a play request until its first sample is handed to the device,
+ *   for the null backend and for JavaSound when a line is available,
+ * - the number of voices the mixer can sustain in real time.
+ *
+ * Usage: java engine.AudioBenchmark [report.json]
+ * SoundManager runs on the backend given by -Dinvaders.audio.backend,
+ * "recording" if not set.
+ */
+public final class AudioBenchmark {
+
+    /** Calls measured per SoundManager method. */
+    private static final int CALLS = 20_000;
+    /** Calls made before measuring. */
+    private static final int WARMUP_CALLS = 5_000;
+    /** Calls between short pauses, so the mixer keeps up with the queue. */
+    private static final int CALLS_PER_BATCH = 8;
+    /** Play requests measured for time to first sample. */
+    private static final int FIRST_SAMPLE_SAMPLES = 200;
+    /** Voice counts tried for the sustained voice test. */
+    private static final int[] VOICE_LEVELS = {16, 32, 64, 128, 256, 512, 1024};
+    /** Time spent at each voice count. */
+    private static final long LEVEL_MILLIS = 1_500;
+    /** Sound used for single-sound measurements. */
+    private static final String SFX = "sound/shoot.wav";
+    /** Looped sound and music used for the loop and music calls. */
+    private static final String LOOP = "sound/hover.wav";
+    private static final String MUSIC = "sound/CountDownSound.wav";
+
+    /** Source of per-thread allocation counters, null if the JVM has none. */
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+            ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean ? bean : null;
+
+    private AudioBenchmark() {
+    }
+
+    /**
+     * Backend wrapper timing when sounds reach the device and how long the
+     * mixer spends between two writes.
+     */
+    private static final class ProbeBackend implements AudioBackend {
+        private final AudioBackend delegate;
+        /** Set by soundStarted, cleared by the next write. */
+        private boolean soundPending;
+        /** Time the last started sound was handed to the device, and a counter. */
+        private volatile long handoffNanos;
+        private volatile int handoffs;
+        /** Time the previous write returned, 0 before the first one. */
+        private long lastWriteEnd;
+        /** Mixing time per chunk, recorded while enabled. */
+        private final long[] mixNanos = new long[1 << 16];
+        private volatile int mixCount;
+        private volatile boolean recordMix;
+
+        ProbeBackend(final AudioBackend delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void open(final AudioFormat format, final int bufferFrames) throws LineUnavailableException {
+            delegate.open(format, bufferFrames);
+        }
+
+        @Override
+        public void write(final byte[] data, final int length) {
+            long start = System.nanoTime();
+            if (soundPending) {
+                soundPending = false;
+                handoffNanos = start;
+                handoffs++;
+            }
+            if (recordMix && lastWriteEnd != 0 && mixCount < mixNanos.length)
+                mixNanos[mixCount++] = start - lastWriteEnd;
+            delegate.write(data, length);
+            lastWriteEnd = System.nanoTime();
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+
+        @Override
+        public String getName() {
+            return delegate.getName();
+        }
+
+        @Override
+        public void soundStarted(final String resourcePath, final long framePosition) {
+            soundPending = true;
+            delegate.soundStarted(resourcePath, framePosition);
+        }
+
+        void startMixRecording() {
+            mixCount = 0;
+            recordMix = true;
+        }
+
+        long[] stopMixRecording() {
+            recordMix = false;
+            return Arrays.copyOf(mixNanos, mixCount);
+        }
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args
+     *            Optional report path, "audio-benchmark.json" by default.
+     */
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        Path reportPath = Path.of(args.length > 0 ? args[0] : "audio-benchmark.json");
+        if (System.getProperty("invaders.audio.backend") == null)
+            System.setProperty("invaders.audio.backend", "recording");
+
+        SoundCache.preloadAll();
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"javaVersion\": \"").append(System.getProperty("java.version")).append("\",\n");
+        json.append("  \"soundManagerBackend\": \"").append(System.getProperty("invaders.audio.backend")).append("\",\n");
+
+        // Game-thread cost of each SoundManager call.
+        json.append("  \"calls\": {\n");
+        json.append("    \"playOnce\": ").append(measureCalls(() -> SoundManager.playOnce(SFX))).append(",\n");
+        json.append("    \"playLoop\": ").append(measureCalls(() -> SoundManager.playLoop(LOOP))).append(",\n");
+        json.append("    \"startBackgroundMusic\": ")
+                .append(measureCalls(() -> SoundManager.startBackgroundMusic(MUSIC))).append("\n");
+        json.append("  },\n");
+        SoundManager.stopAllMusic();
+        json.append("  \"droppedCommands\": ").append(SoundManager.getMixer().getDroppedCommands()).append(",\n");
+
+        // Request to device handoff.
+        json.append("  \"timeToFirstSample\": {\n");
+        json.append("    \"null\": ").append(measureFirstSample(new NullAudioBackend())).append(",\n");
+        json.append("    \"javasound\": ").append(isJavaSoundAvailable()
+                ? measureFirstSample(new JavaSoundBackend()) : "\"unavailable\"").append("\n");
+        json.append("  },\n");
+
+        json.append("  \"sustainedVoices\": ").append(measureSustainedVoices()).append("\n");
+        json.append("}\n");
+
+        Files.writeString(reportPath, json, StandardCharsets.UTF_8);
+        System.out.print(json);
+        System.out.println("Report written to " + reportPath.toAbsolutePath());
+    }
+
+    /**
+     * Times one SoundManager call and its allocation on this thread.
+     */
+    private static String measureCalls(final Runnable call) throws InterruptedException {
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            call.run();
+            if (i % CALLS_PER_BATCH == 0) Thread.sleep(1);
+        }
+
+        long[] nanos = new long[CALLS];
+        long allocated = 0;
+        for (int i = 0; i < CALLS; i++) {
+            long bytesBefore = allocatedBytes();
+            long start = System.nanoTime();
+            call.run();
+            nanos[i] = System.nanoTime() - start;
+            allocated += allocatedBytes() - bytesBefore;
+            if (i % CALLS_PER_BATCH == 0) Thread.sleep(1);
+        }
+        return String.format(Locale.ROOT, "{%s, \"allocatedBytesPerCall\": %.2f}",
+                percentiles(nanos, "Nanos"), allocated / (double) CALLS);
+    }
+
+    /**
+     * Times play requests until their first sample is handed to the backend.
+     */
+    private static String measureFirstSample(final AudioBackend backend) throws InterruptedException {
+        ProbeBackend probe = new ProbeBackend(backend);
+        AudioMixer mixer = new AudioMixer(probe, AudioMixer.DEFAULT_VOICES, AudioMixer.DEFAULT_BUFFER_FRAMES);
+        mixer.start();
+        Thread.sleep(200);
+
+        long[] micros = new long[FIRST_SAMPLE_SAMPLES];
+        int measured = 0;
+        for (int i = 0; i < FIRST_SAMPLE_SAMPLES; i++) {
+            int before = probe.handoffs;
+            // One request per tick, so none is coalesced.
+            mixer.beginTick();
+            long start = System.nanoTime();
+            mixer.play(SFX);
+            long deadline = start + 1_000_000_000L;
+            while (probe.handoffs == before && System.nanoTime() < deadline)
+                Thread.onSpinWait();
+            if (probe.handoffs != before)
+                micros[measured++] = (probe.handoffNanos - start) / 1000;
+            Thread.sleep(25);
+        }
+        String backendName = mixer.getBackend().getName();
+        mixer.shutdown();
+
+        double deviceMillis = AudioMixer.DEFAULT_BUFFER_FRAMES * 1000.0 / SoundCache.OUTPUT_FORMAT.getSampleRate();
+        return String.format(Locale.ROOT, "{%s, \"backend\": \"%s\", \"deviceBufferMillis\": %.1f}",
+                percentiles(Arrays.copyOf(micros, measured), "Micros"), backendName, deviceMillis);
+    }
+
+    /**
+     * Plays every cached sound each tick on mixers with more and more voices,
+     * and reports how long each chunk took to mix against its duration.
+     */
+    private static String measureSustainedVoices() throws InterruptedException {
+        List<String> sounds = new ArrayList<>();
+        File[] files = new File("res/sound").listFiles((d, n) -> n.endsWith(".wav"));
+        if (files != null)
+            for (File file : files)
+                sounds.add("sound/" + file.getName());
+
+        int bufferFrames = AudioMixer.DEFAULT_BUFFER_FRAMES;
+        double chunkMicros = bufferFrames / 4 * 1_000_000.0 / SoundCache.OUTPUT_FORMAT.getSampleRate();
+        int maxSustained = 0;
+        StringBuilder levels = new StringBuilder();
+
+        for (int voices : VOICE_LEVELS) {
+            ProbeBackend probe = new ProbeBackend(new NullAudioBackend());
+            AudioMixer mixer = new AudioMixer(probe, voices, bufferFrames);
+            mixer.start();
+
+            long end = System.currentTimeMillis() + LEVEL_MILLIS;
+            boolean recording = false;
+            while (System.currentTimeMillis() < end) {
+                mixer.beginTick();
+                for (String sound : sounds)
+                    mixer.play(sound);
+                // Measure once the voices have filled up.
+                if (!recording && System.currentTimeMillis() > end - LEVEL_MILLIS / 2) {
+                    probe.startMixRecording();
+                    recording = true;
+                }
+                Thread.sleep(16);
+            }
+            long[] mix = probe.stopMixRecording();
+            mixer.shutdown();
+
+            Arrays.sort(mix);
+            double p99 = mix.length == 0 ? 0 : mix[(int) (mix.length * 0.99)] / 1000.0;
+            double load = p99 / chunkMicros;
+            if (load < 1.0) maxSustained = voices;
+            if (levels.length() > 0) levels.append(", ");
+            levels.append(String.format(Locale.ROOT,
+                    "{\"voices\": %d, \"p99MixMicros\": %.1f, \"load\": %.3f}", voices, p99, load));
+        }
+
+        return String.format(Locale.ROOT,
+                "{\"chunkMicros\": %.1f, \"maxSustainedVoices\": %d, \"levels\": [%s]}",
+                chunkMicros, maxSustained, levels);
+    }
+
+    private static boolean isJavaSoundAvailable() {
+        return AudioSystem.isLineSupported(new DataLine.Info(SourceDataLine.class, SoundCache.OUTPUT_FORMAT));
+    }
+
+    /**
+     * @return Bytes allocated so far by this thread, or 0 if not supported.
+     */
+    private static long allocatedBytes() {
+        return THREAD_BEAN != null ? THREAD_BEAN.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    /**
+     * Formats the sample count and p50/p90/p99/max as JSON object members.
+     */
+    private static String percentiles(final long[] samples, final String unit) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        if (sorted.length == 0)
+            return "\"samples\": 0";
+        return String.format(Locale.ROOT,
+                "\"samples\": %d, \"p50%s\": %d, \"p90%s\": %d, \"p99%s\": %d, \"max%s\": %d",
+                sorted.length,
+                unit, sorted[sorted.length / 2],
+                unit, sorted[(int) (sorted.length * 0.90)],
+                unit, sorted[(int) (sorted.length * 0.99)],
+                unit, sorted[sorted.length - 1]);
+    }
+}
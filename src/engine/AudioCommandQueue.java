@@ -0,0 +1,127 @@
+package engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free single-producer, single-consumer ring of audio commands.
+ *
+ * The game thread is the only producer and the mixer thread the only
+ * consumer. Commands live in preallocated parallel arrays, so offering one
+ * allocates nothing; when the ring is full the command is dropped rather
+ * than blocking the game thread.
+ */
+final class AudioCommandQueue {
+
+    /** Starts a one-shot sound. Argument: resource path. */
+    static final int PLAY = 1;
+    /** Starts a looped sound on a channel. Arguments: resource path, channel. */
+    static final int LOOP = 2;
+    /** Stops the sound on a channel. Argument: channel. */
+    static final int STOP = 3;
+    /** Sets the master volume. Argument: gain. */
+    static final int SET_VOLUME = 4;
+    /** Starts or resumes a music track. Argument: resource path. */
+    static final int MUSIC = 5;
+    /** Pauses the music at its position. */
+    static final int PAUSE_MUSIC = 6;
+    /** Resumes paused music. */
+    static final int RESUME_MUSIC = 7;
+    /** Stops the music and rewinds it. */
+    static final int STOP_MUSIC = 8;
+
+    private final int mask;
+    private final int[] ops;
+    private final String[] paths;
+    private final int[] channels;
+    private final float[] values;
+    /** Game tick each command was requested in. */
+    private final long[] ticks;
+
+    /** Next slot to read; written by the consumer only. */
+    private final AtomicLong head = new AtomicLong();
+    /** Next slot to write; written by the producer only. */
+    private final AtomicLong tail = new AtomicLong();
+    /** Producer-side copy of head, refreshed only when the ring looks full. */
+    private long cachedHead;
+    /** Commands dropped because the ring was full. */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param capacity
+     *            Number of slots, rounded up to a power of two.
+     */
+    AudioCommandQueue(final int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.ops = new int[size];
+        this.paths = new String[size];
+        this.channels = new int[size];
+        this.values = new float[size];
+        this.ticks = new long[size];
+    }
+
+    /**
+     * Enqueues a command. Producer thread only.
+     *
+     * @param tick
+     *            Game tick the command is requested in.
+     * @return False if the ring was full and the command was dropped.
+     */
+    boolean offer(final int op, final String path, final int channel, final float value, final long tick) {
+        long t = tail.get();
+        if (t - cachedHead > mask) {
+            cachedHead = head.get();
+            if (t - cachedHead > mask) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        }
+        int i = (int) t & mask;
+        ops[i] = op;
+        paths[i] = path;
+        channels[i] = channel;
+        values[i] = value;
+        ticks[i] = tick;
+        // Publishes the slot contents before the new tail.
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Hands every pending command to the consumer. Consumer thread only.
+     * A command the consumer throws on is consumed, not retried.
+     *
+     * @param consumer
+     *            Receives each command in order.
+     * @return Number of commands drained.
+     */
+    int drain(final Consumer consumer) {
+        long h = head.get();
+        long t = tail.get();
+        long n = h;
+        try {
+            while (n < t) {
+                int i = (int) n++ & mask;
+                String path = paths[i];
+                paths[i] = null;
+                consumer.accept(ops[i], path, channels[i], values[i], ticks[i]);
+            }
+        } finally {
+            head.lazySet(n);
+        }
+        return (int) (t - h);
+    }
+
+    /**
+     * @return Number of commands dropped because the ring was full.
+     */
+    long getDropped() {
+        return dropped.get();
+    }
+
+    /** Receives drained commands. */
+    @FunctionalInterface
+    interface Consumer {
+        void accept(int op, String path, int channel, float value, long tick);
+    }
+}
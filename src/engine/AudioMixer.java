@@ -0,0 +1,575 @@
+package engine;
+
+import javax.sound.sampled.LineUnavailableException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Software mixer writing every sound to a single {@link AudioBackend}
+ * (normally one JavaSound SourceDataLine).
+ *
+ * Sounds are played as voices over PCM from {@link SoundCache}, in
+ * {@link SoundCache#OUTPUT_FORMAT}. The number of voices is fixed; when all
+ * are busy the oldest one-shot voice is stolen. A dedicated thread mixes the
+ * voices with per-voice gain and pan and the master volume.
+ *
+ * The public methods only enqueue a command on an {@link AudioCommandQueue};
+ * the mixer thread applies them before each chunk, so the caller never
+ * touches the device or decodes anything. They must all be called from the
+ * same thread (the game thread).
+ *
+ * Music is streamed through a {@link MusicStream} unless the track is
+ * already in the SoundCache. Pausing keeps the position, and the last few
+ * tracks stay open so switching back to one does not reopen it.
+ *
+ * If the backend fails to open or write, or mixing throws, MAX_FAILURES
+ * times in a row, the mixer gives up on it and carries on with a
+ * {@link NullAudioBackend}, so a machine without a usable device pays for
+ * the failure only a few times.
+ */
+public final class AudioMixer {
+
+    /** Default number of simultaneous voices. */
+    public static final int DEFAULT_VOICES = 16;
+    /** Default device buffer, in frames (about 46 ms at 44.1 kHz). */
+    public static final int DEFAULT_BUFFER_FRAMES = 2048;
+    /** Number of channels available for looped sounds. */
+    public static final int CHANNELS = 4;
+
+    /** Bytes per output frame (16-bit stereo). */
+    private static final int FRAME_BYTES = 4;
+    /** Command ring size. */
+    private static final int QUEUE_CAPACITY = 256;
+    /** Music tracks kept open after switching away from them. */
+    private static final int MAX_OPEN_TRACKS = 2;
+    /** Consecutive backend failures before switching to the null backend. */
+    private static final int MAX_FAILURES = 3;
+    /** Wait after a failed open, multiplied by the failure count. */
+    private static final long RETRY_DELAY_MILLIS = 200;
+
+    private static final Logger logger = Core.getLogger();
+
+    /** One playing sound. */
+    private static final class Voice {
+        byte[] pcm;
+        int frame;
+        int frameCount;
+        float gainLeft;
+        float gainRight;
+        boolean loop;
+        boolean active;
+        /** Paused voices keep their position and are skipped by the mix. */
+        boolean paused;
+        /** Start order, used to pick the oldest voice to steal. */
+        long started;
+        /** Game tick of the one-shot request that started it, -1 for loops. */
+        long tick;
+    }
+
+    /** Voice slots; mixer thread only. */
+    private final Voice[] voices;
+    /** Voice playing on each loop channel, or null; mixer thread only. */
+    private final Voice[] channelVoices = new Voice[CHANNELS];
+    /** Commands from the game thread. */
+    private final AudioCommandQueue commands = new AudioCommandQueue(QUEUE_CAPACITY);
+    /** Frames mixed per write. */
+    private final int chunkFrames;
+    /** Line buffer size in frames. */
+    private final int bufferFrames;
+    /** Master volume, 0 to 1; mixer thread only. */
+    private float masterGain = 1.0f;
+    /** Counter used for voice start order; mixer thread only. */
+    private long startCounter = 0;
+    /** Open music tracks, most recently played last; mixer thread only. */
+    private final Map<String, MusicStream> tracks =
+            new LinkedHashMap<String, MusicStream>(4, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, MusicStream> eldest) {
+                    if (size() <= MAX_OPEN_TRACKS) return false;
+                    eldest.getValue().close();
+                    return true;
+                }
+            };
+    /** Track currently playing or paused, or null; mixer thread only. */
+    private MusicStream music;
+    /** Cached track played as a voice instead of a stream; mixer thread only. */
+    private Voice musicVoice;
+    private boolean musicPaused;
+    /** Resource path of the current track; mixer thread only. */
+    private String musicPath;
+    /** One-shots skipped by coalescing. */
+    private volatile long coalesced = 0;
+    /** Current game tick, stamped on every command; game thread only. */
+    private long tick = 0;
+
+    /** Output device; replaced by the null backend after repeated failures. */
+    private volatile AudioBackend backend;
+    /** Whether the backend is open; mixer thread only. */
+    private boolean backendOpen;
+    /** Consecutive backend failures; mixer thread only. */
+    private int failures;
+    /** Output frames mixed so far; mixer thread only. */
+    private long framesMixed;
+
+    /** Mixing thread. */
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * Creates a stopped mixer.
+     *
+     * @param backend
+     *            Output device.
+     * @param voiceCount
+     *            Maximum number of simultaneous voices.
+     * @param bufferFrames
+     *            Size of the device buffer in frames; smaller means lower latency.
+     */
+    public AudioMixer(final AudioBackend backend, final int voiceCount, final int bufferFrames) {
+        this.backend = backend;
+        this.voices = new Voice[Math.max(1, voiceCount)];
+        for (int i = 0; i < voices.length; i++)
+            voices[i] = new Voice();
+        this.bufferFrames = Math.max(256, bufferFrames);
+        this.chunkFrames = this.bufferFrames / 4;
+    }
+
+    /**
+     * Starts the mixing thread, which opens the backend.
+     */
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this::mixLoop, "audio-mixer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Stops the mixing thread and releases the backend.
+     */
+    public void shutdown() {
+        Thread t;
+        synchronized (this) {
+            running = false;
+            t = thread;
+            thread = null;
+        }
+        if (t != null) {
+            try {
+                t.join(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @return True if the mixer is running.
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Starts the next game tick. Commands are stamped with the tick they are
+     * requested in.
+     */
+    public void beginTick() {
+        tick++;
+    }
+
+    /**
+     * Requests a one-shot sound. Identical requests within one game tick are
+     * played once.
+     *
+     * @param resourcePath
+     *            Sound resource, e.g. "sound/shoot.wav".
+     */
+    public void play(final String resourcePath) {
+        if (running)
+            commands.offer(AudioCommandQueue.PLAY, resourcePath, 0, 0f, tick);
+    }
+
+    /**
+     * Requests a looped sound on a channel, replacing what the channel plays.
+     *
+     * @param channel
+     *            Channel, 0 to CHANNELS - 1.
+     * @param resourcePath
+     *            Sound resource.
+     */
+    public void loop(final int channel, final String resourcePath) {
+        if (running)
+            commands.offer(AudioCommandQueue.LOOP, resourcePath, channel, 0f, tick);
+    }
+
+    /**
+     * Requests that the sound on a channel stops.
+     *
+     * @param channel
+     *            Channel, 0 to CHANNELS - 1.
+     */
+    public void stop(final int channel) {
+        if (running)
+            commands.offer(AudioCommandQueue.STOP, null, channel, 0f, tick);
+    }
+
+    /**
+     * Requests a music track. If it is the current track it resumes where it
+     * was paused; otherwise the current track is paused and kept open.
+     *
+     * @param resourcePath
+     *            Music resource.
+     */
+    public void playMusic(final String resourcePath) {
+        if (running)
+            commands.offer(AudioCommandQueue.MUSIC, resourcePath, 0, 0f, tick);
+    }
+
+    /**
+     * Requests that the music pauses, keeping its position.
+     */
+    public void pauseMusic() {
+        if (running)
+            commands.offer(AudioCommandQueue.PAUSE_MUSIC, null, 0, 0f, tick);
+    }
+
+    /**
+     * Requests that paused music continues.
+     */
+    public void resumeMusic() {
+        if (running)
+            commands.offer(AudioCommandQueue.RESUME_MUSIC, null, 0, 0f, tick);
+    }
+
+    /**
+     * Requests that the music stops; the next playMusic starts it over.
+     */
+    public void stopMusic() {
+        if (running)
+            commands.offer(AudioCommandQueue.STOP_MUSIC, null, 0, 0f, tick);
+    }
+
+    /**
+     * @param gain
+     *            Master volume, 0 to 1.
+     */
+    public void setMasterGain(final float gain) {
+        if (running)
+            commands.offer(AudioCommandQueue.SET_VOLUME, null, 0, Math.max(0f, Math.min(1f, gain)), tick);
+    }
+
+    /**
+     * @return Backend currently in use.
+     */
+    public AudioBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * @return Commands dropped because the queue was full.
+     */
+    public long getDroppedCommands() {
+        return commands.getDropped();
+    }
+
+    /**
+     * @return One-shot requests merged with an identical one.
+     */
+    public long getCoalescedCommands() {
+        return coalesced;
+    }
+
+    /**
+     * Applies one command. Mixer thread only.
+     */
+    private void execute(final int op, final String path, final int channel, final float value,
+                         final long commandTick) {
+        switch (op) {
+            case AudioCommandQueue.PLAY: {
+                byte[] pcm = SoundCache.get(path);
+                if (pcm == null) return;
+                if (isPlayingFromTick(pcm, commandTick)) {
+                    coalesced++;
+                    return;
+                }
+                Voice voice = startVoice(pcm, 1.0f, 0.0f, false);
+                if (voice == null) return;
+                voice.tick = commandTick;
+                backend.soundStarted(path, framesMixed);
+                break;
+            }
+            case AudioCommandQueue.LOOP: {
+                stopChannel(channel);
+                byte[] pcm = SoundCache.get(path);
+                if (pcm != null) {
+                    channelVoices[channel] = startVoice(pcm, 1.0f, 0.0f, true);
+                    if (channelVoices[channel] != null)
+                        backend.soundStarted(path, framesMixed);
+                }
+                break;
+            }
+            case AudioCommandQueue.STOP:
+                stopChannel(channel);
+                break;
+            case AudioCommandQueue.SET_VOLUME:
+                masterGain = value;
+                break;
+            case AudioCommandQueue.MUSIC:
+                startMusic(path);
+                break;
+            case AudioCommandQueue.PAUSE_MUSIC:
+                setMusicPaused(true);
+                break;
+            case AudioCommandQueue.RESUME_MUSIC:
+                setMusicPaused(false);
+                break;
+            case AudioCommandQueue.STOP_MUSIC:
+                stopMusic(true);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Switches to a track, resuming it if it is current or still open.
+     */
+    private void startMusic(final String path) {
+        if (path.equals(musicPath) && (music != null || musicVoice != null)) {
+            setMusicPaused(false);
+            return;
+        }
+        stopMusic(false);
+
+        musicPath = path;
+        musicPaused = false;
+        backend.soundStarted(path, framesMixed);
+        if (SoundCache.contains(path)) {
+            musicVoice = startVoice(SoundCache.get(path), 1.0f, 0.0f, true);
+            return;
+        }
+        MusicStream stream = tracks.get(path);
+        if (stream == null) {
+            stream = MusicStream.take(path);
+            if (stream == null) return;
+            tracks.put(path, stream);
+        }
+        music = stream;
+    }
+
+    /**
+     * Stops the current track.
+     *
+     * @param rewind
+     *            Whether to close the stream so the track restarts next time,
+     *            instead of keeping it open at its position.
+     */
+    private void stopMusic(final boolean rewind) {
+        if (music != null && rewind) {
+            tracks.remove(music.getResourcePath());
+            music.close();
+        }
+        music = null;
+        if (musicVoice != null) {
+            musicVoice.active = false;
+            musicVoice = null;
+        }
+        musicPath = null;
+        musicPaused = false;
+    }
+
+    private void setMusicPaused(final boolean paused) {
+        musicPaused = paused;
+        if (musicVoice != null)
+            musicVoice.paused = paused;
+    }
+
+    private void stopChannel(final int channel) {
+        Voice v = channelVoices[channel];
+        if (v != null) {
+            v.active = false;
+            channelVoices[channel] = null;
+        }
+    }
+
+    /**
+     * @return True if the sound was already started by a request of the
+     *         given game tick.
+     */
+    private boolean isPlayingFromTick(final byte[] pcm, final long commandTick) {
+        for (Voice v : voices)
+            if (v.active && !v.loop && v.pcm == pcm && v.tick == commandTick)
+                return true;
+        return false;
+    }
+
+    /**
+     * Starts a voice, stealing one if all are busy.
+     *
+     * @return The voice, or null if the sound has no frames (a WAV with a
+     *         header only), which would never advance when looped.
+     */
+    private Voice startVoice(final byte[] pcm, final float gain, final float pan, final boolean loop) {
+        if (pcm.length < FRAME_BYTES) {
+            logger.warning("Audio mixer: skipping a sound without samples.");
+            return null;
+        }
+        Voice v = null;
+        for (Voice candidate : voices) {
+            if (!candidate.active) {
+                v = candidate;
+                break;
+            }
+        }
+        if (v == null) v = pickVictim();
+        for (int c = 0; c < CHANNELS; c++)
+            if (channelVoices[c] == v) channelVoices[c] = null;
+        if (musicVoice == v) musicVoice = null;
+
+        v.pcm = pcm;
+        v.frame = 0;
+        v.frameCount = pcm.length / FRAME_BYTES;
+        v.gainLeft = gain * Math.min(1f, 1f - pan);
+        v.gainRight = gain * Math.min(1f, 1f + pan);
+        v.loop = loop;
+        v.paused = false;
+        v.tick = -1;
+        v.started = startCounter++;
+        v.active = true;
+        return v;
+    }
+
+    /**
+     * Chooses the voice to steal: the oldest one-shot, or the oldest loop if
+     * every voice is looping.
+     */
+    private Voice pickVictim() {
+        Voice victim = null;
+        for (Voice v : voices) {
+            boolean better = victim == null
+                    || (victim.loop && !v.loop)
+                    || (victim.loop == v.loop && v.started < victim.started);
+            if (better) victim = v;
+        }
+        return victim;
+    }
+
+    /**
+     * Mixing thread: applies pending commands, fills one chunk and writes it
+     * to the backend, which blocks once the device buffer is full.
+     */
+    private void mixLoop() {
+        int[] mix = new int[chunkFrames * 2];
+        byte[] out = new byte[chunkFrames * FRAME_BYTES];
+        AudioCommandQueue.Consumer executor = this::execute;
+
+        while (running) {
+            if (!backendOpen && !openBackend()) continue;
+
+            Arrays.fill(mix, 0);
+            try {
+                commands.drain(executor);
+                for (Voice v : voices)
+                    if (v.active && !v.paused) mixVoice(v, mix);
+                if (music != null && !musicPaused)
+                    music.mixInto(mix, chunkFrames, 1.0f);
+            } catch (RuntimeException e) {
+                // Drop what is playing, so one bad sound does not fail every chunk.
+                for (Voice v : voices)
+                    v.active = false;
+                Arrays.fill(channelVoices, null);
+                stopMusic(true);
+                Arrays.fill(mix, 0);
+                backendFailed("mixing failed: " + e);
+            }
+
+            float master = masterGain;
+            for (int i = 0; i < mix.length; i++) {
+                int s = (int) (mix[i] * master);
+                if (s > Short.MAX_VALUE) s = Short.MAX_VALUE;
+                else if (s < Short.MIN_VALUE) s = Short.MIN_VALUE;
+                out[i * 2] = (byte) s;
+                out[i * 2 + 1] = (byte) (s >> 8);
+            }
+            try {
+                backend.write(out, out.length);
+                failures = 0;
+            } catch (RuntimeException e) {
+                backendFailed(e.getMessage());
+            }
+            framesMixed += chunkFrames;
+        }
+        if (backendOpen)
+            backend.close();
+        backendOpen = false;
+    }
+
+    /**
+     * Opens the backend, waiting a little after a failure.
+     *
+     * @return True if the backend is open.
+     */
+    private boolean openBackend() {
+        try {
+            backend.open(SoundCache.OUTPUT_FORMAT, bufferFrames);
+            backendOpen = true;
+            logger.info("Audio mixer started on " + backend.getName() + ": "
+                    + voices.length + " voices, " + bufferFrames + " frame buffer.");
+            return true;
+        } catch (LineUnavailableException | RuntimeException e) {
+            backendFailed(e.getMessage());
+            if (backend instanceof NullAudioBackend) return false;
+            try {
+                Thread.sleep(RETRY_DELAY_MILLIS * failures);
+            } catch (InterruptedException ie) {
+                running = false;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Circuit breaker: closes the failed backend and, after MAX_FAILURES in
+     * a row, replaces it with the null backend for the rest of the run.
+     */
+    private void backendFailed(final String reason) {
+        if (backendOpen)
+            backend.close();
+        backendOpen = false;
+        failures++;
+        logger.warning("Audio backend " + backend.getName() + " failed ("
+                + failures + "/" + MAX_FAILURES + "): " + reason);
+        if (failures >= MAX_FAILURES) {
+            logger.warning("Audio disabled, continuing without sound.");
+            backend = new NullAudioBackend();
+            failures = 0;
+        }
+    }
+
+    /**
+     * Adds one voice to the mix buffer and advances it.
+     */
+    private void mixVoice(final Voice v, final int[] mix) {
+        byte[] pcm = v.pcm;
+        for (int f = 0; f < chunkFrames; f++) {
+            if (v.frame >= v.frameCount) {
+                if (!v.loop) {
+                    v.active = false;
+                    return;
+                }
+                v.frame = 0;
+            }
+            int b = v.frame * FRAME_BYTES;
+            int left = (short) ((pcm[b] & 0xFF) | (pcm[b + 1] << 8));
+            int right = (short) ((pcm[b + 2] & 0xFF) | (pcm[b + 3] << 8));
+            mix[f * 2] += (int) (left * v.gainLeft);
+            mix[f * 2 + 1] += (int) (right * v.gainRight);
+            v.frame++;
+        }
+    }
+}
@@ -1,9 +1,9 @@
 package engine;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.logging.ConsoleHandler;
-import java.util.logging.FileHandler;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -28,6 +28,13 @@ public final class Core {
     private static final int MAX_LIVES = 3;
     private static final int EXTRA_LIFE_FREQUENCY = 3;
 
+    /** Log file size at which it is rotated. */
+    private static final long LOG_FILE_BYTES = 8L * 1024 * 1024;
+    /** Log file age at which it is rotated. */
+    private static final long LOG_FILE_AGE_MILLIS = 60L * 60 * 1000;
+    /** Disk space allowed for the logs folder. */
+    private static final long LOG_BUDGET_BYTES = 64L * 1024 * 1024;
+
     /** Frame to draw the screen on. */
     private static Frame frame;
     private static Screen currentScreen;
@@ -35,7 +42,13 @@ public final class Core {
     private static final Logger LOGGER = Logger.getLogger(Core.class.getSimpleName());
     private static Handler fileHandler;
     private static ConsoleHandler consoleHandler;
+    /** Writes the file and console logs off the game thread. */
+    private static AsyncLogHandler asyncLogHandler;
     private static int NUM_LEVELS; // Total number of levels
+    /** Prefix of the metrics session tags, e.g. the cabinet id. */
+    private static final String METRICS_TAG = System.getProperty("invaders.metrics.tag", "game");
+    /** Games started since launch, for the metrics session tags. */
+    private static int gamesStarted;
 
     /**
      * Test implementation.
@@ -46,26 +59,67 @@ public final class Core {
     public static void main(final String[] args) throws IOException {
         try {
             LOGGER.setUseParentHandlers(false);
-            fileHandler = new FileHandler("log");
+            fileHandler = new RotatingLogHandler(Path.of("logs"), "game",
+                    LOG_FILE_BYTES, LOG_FILE_AGE_MILLIS, LOG_BUDGET_BYTES);
             fileHandler.setFormatter(new MinimalFormatter());
             consoleHandler = new ConsoleHandler();
             consoleHandler.setFormatter(new MinimalFormatter());
-            LOGGER.addHandler(fileHandler);
-            LOGGER.addHandler(consoleHandler);
+            asyncLogHandler = new AsyncLogHandler(4096, fileHandler, consoleHandler);
+            LOGGER.addHandler(asyncLogHandler);
             LOGGER.setLevel(Level.ALL);
         } catch (Exception e) {
             e.printStackTrace();
         }
 
+        SoundCache.preloadAll(); // decode every sound effect once, up front
+
         frame = new Frame(WIDTH, HEIGHT);
         InputManager input = InputManager.getInstance();
         frame.addKeyListener(input); // Register an instance to allow the window to receive keyboard event information
+        SyntheticInput.startIfConfigured(input);
         DrawManager.getInstance().setFrame(frame);
-        int width = frame.getWidth();
-        int height = frame.getHeight();
 
+        runScreens(screen -> {
+            int code = frame.setScreen(screen);
+            if (screen instanceof SettingScreen) {
+                frame.removeKeyListener(InputManager.getInstance());
+                frame.addKeyListener(InputManager.getInstance()); // Remove and re-register the input manager, forcing the key setting of the frame to be updated
+            }
+            return code;
+        }, frame.getWidth(), frame.getHeight());
+
+        asyncLogHandler.close();
+        System.exit(0);
+    }
+
+    /**
+     * Shows one screen until it closes.
+     */
+    @FunctionalInterface
+    public interface ScreenRunner {
+        /**
+         * @param screen
+         *            Screen to initialize and run.
+         * @return Next screen code, as returned by the screen.
+         */
+        int run(Screen screen);
+    }
+
+    /**
+     * Runs the game's screens, from the title screen, until one returns 0
+     * (exit). Loads the levels and starts the resource watcher first.
+     *
+     * @param runner
+     *            Shows each screen; Frame.setScreen in the game.
+     * @param width
+     *            Screen width.
+     * @param height
+     *            Screen height.
+     */
+    public static void runScreens(final ScreenRunner runner, final int width, final int height) {
         gameSettings = GameSettings.getGameSettings();
         NUM_LEVELS = gameSettings.size(); // Initialize total number of levels
+        ResourceWatcher.getInstance().start(); // reload level.csv / item_db.csv when edited
 
         GameState gameState;
         int returnCode = 1;
@@ -77,29 +131,53 @@ public final class Core {
 
             switch (returnCode) {
                 case 1:
+                    applyReloadedResources();
+                    // Build the first stage while the player is on the menus.
+                    StagePrefetcher.getInstance().prefetch(gameSettings.get(0), GameScreen.BACKGROUND_MUSIC);
                     currentScreen = new TitleScreen(width, height, FPS);
                     LOGGER.info("Starting " + WIDTH + "x" + HEIGHT + " title screen at " + FPS + " fps.");
-                    returnCode = frame.setScreen(currentScreen);
+                    returnCode = runner.run(currentScreen);
                     LOGGER.info("Closing title screen.");
 
                     if (returnCode == 2) {
                         currentScreen = new PlayScreen(width, height, FPS);
-                        returnCode = frame.setScreen(currentScreen);
+                        returnCode = runner.run(currentScreen);
                     }
 
                     break;
 
                 case 2:
                     gameState = new GameState(1, MAX_LIVES, 0);
+                    Telemetry.getInstance().beginSession();
+                    Metrics.startSession(METRICS_TAG + "-" + (++gamesStarted));
 
                     do {
                         // Extra life this level? Give it if team pool is below cap.
                         boolean bonusLife = gameState.getLevel() % EXTRA_LIFE_FREQUENCY == 0 && gameState.getLives() < MAX_LIVES;
 
+                        applyReloadedResources();
+                        if (gameState.getLevel() > gameSettings.size())
+                            break; // reloaded level.csv has fewer stages
+
                         currentScreen = new GameScreen(gameState, gameSettings.get(gameState.getLevel() - 1), bonusLife, width, height, FPS, shipType, achievementManager);
 
+                        // Build the next stage while this one is played.
+                        if (gameState.getLevel() < gameSettings.size())
+                            StagePrefetcher.getInstance().prefetch(gameSettings.get(gameState.getLevel()), GameScreen.BACKGROUND_MUSIC);
+
                         LOGGER.info("Starting " + WIDTH + "x" + HEIGHT + " game screen at " + FPS + " fps.");
-                        returnCode = frame.setScreen(currentScreen);
+                        GameEvents.Level levelEvent = new GameEvents.Level();
+                        levelEvent.begin();
+                        returnCode = runner.run(currentScreen);
+                        levelEvent.end();
+                        if (levelEvent.shouldCommit()) {
+                            GameState played = ((GameScreen) currentScreen).getGameState();
+                            levelEvent.level = played.getLevel();
+                            levelEvent.score = played.getScore();
+                            levelEvent.lives = played.getLives();
+                            levelEvent.cleared = returnCode != 1 && played.teamAlive();
+                            levelEvent.commit();
+                        }
                         LOGGER.info("Closing game screen.");
                         if (returnCode == 1) {
                             break;
@@ -112,6 +190,7 @@ public final class Core {
                         }
 
                     } while (gameState.teamAlive() && gameState.getLevel() <= gameSettings.size());
+                    Telemetry.getInstance().endSession();
                     if (returnCode == 1) {
                         break;
                     }
@@ -121,7 +200,7 @@ public final class Core {
                             + gameState.getBulletsShot() + " bullets shot and "
                             + gameState.getShipsDestroyed() + " ships destroyed.");
                     currentScreen = new ScoreScreen(width, height, FPS, gameState, achievementManager);
-                    returnCode = frame.setScreen(currentScreen);
+                    returnCode = runner.run(currentScreen);
                     LOGGER.info("Closing score screen.");
                     break;
 
@@ -130,7 +209,7 @@ public final class Core {
                     currentScreen = new AchievementScreen(width, height, FPS);
                     LOGGER.info("Starting " + WIDTH + "x" + HEIGHT
                             + " achievements screen at " + FPS + " fps.");
-                    returnCode = frame.setScreen(currentScreen);
+                    returnCode = runner.run(currentScreen);
                     LOGGER.info("Closing achievement screen.");
                     break;
 
@@ -139,17 +218,15 @@ public final class Core {
                     currentScreen = new SettingScreen(width, height, FPS);
                     LOGGER.info("Starting " + WIDTH + "x" + HEIGHT
                             + " setting screen at " + FPS + " fps.");
-                    returnCode = frame.setScreen(currentScreen);
+                    returnCode = runner.run(currentScreen);
                     LOGGER.info("Closing setting screen.");
-                    frame.removeKeyListener(InputManager.getInstance());
-                    frame.addKeyListener(InputManager.getInstance()); // Remove and re-register the input manager, forcing the key setting of the frame to be updated
                     break;
 
                 case 5:
                     // Play : Use the play to decide 1p and 2p
                     currentScreen = new PlayScreen(width, height, FPS);
                     LOGGER.info("Starting " + WIDTH + "x" + HEIGHT + " play screen at " + FPS + " fps.");
-                    returnCode = frame.setScreen(currentScreen);
+                    returnCode = runner.run(currentScreen);
 
                     // play screen -> ship selection screen
                     if (returnCode == 2) {
@@ -161,7 +238,7 @@ public final class Core {
                 case 6:
                     // Ship selection for Player 1.
                     currentScreen = new ShipSelectionScreen(width, height, FPS);
-                    returnCode = frame.setScreen(currentScreen);
+                    returnCode = runner.run(currentScreen);
                     shipType = ((ShipSelectionScreen) currentScreen).getSelectedShipType();
 
                     // If clicked back button, go back to the screen 1P screen -> Player select screen
@@ -175,7 +252,7 @@ public final class Core {
                     // High scores.
                     currentScreen = new HighScoreScreen(width, height, FPS);
                     LOGGER.info("Starting " + WIDTH + "x" + HEIGHT + " high score screen at " + FPS + " fps.");
-                    returnCode = frame.setScreen(currentScreen);
+                    returnCode = runner.run(currentScreen);
                     LOGGER.info("Closing high score screen.");
                     break;
 
@@ -184,10 +261,20 @@ public final class Core {
             }
 
         } while (returnCode != 0);
+    }
 
-        fileHandler.flush();
-        fileHandler.close();
-        System.exit(0);
+    /**
+     * Installs level.csv / item_db.csv changes picked up by the resource
+     * watcher. Called between stages only.
+     */
+    private static void applyReloadedResources() {
+        List<GameSettings> reloaded = ResourceWatcher.getInstance().takeLevels();
+        if (reloaded != null) {
+            gameSettings = reloaded;
+            NUM_LEVELS = gameSettings.size();
+            StagePrefetcher.getInstance().clear();
+        }
+        ResourceWatcher.getInstance().applyItemDB();
     }
 
     /**
@@ -14,6 +14,7 @@ import java.util.LinkedHashMap;
 import java.util.*;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import Animations.BasicGameSpace;
@@ -38,6 +39,9 @@ public final class DrawManager {
     private static Frame frame;
     /** Application logger. */
     private static Logger logger;
+    /** Logged on every explosion, limited to a few lines per second. */
+    private static final LogSite EXPLOSION_LOG =
+            new LogSite(Level.INFO, "Explosion: enemy={0}, final={1}", 5);
     /** Graphics context. */
     private static Graphics graphics;
     /** Buffer Graphics. */
@@ -70,6 +74,16 @@ public final class DrawManager {
     // Label for back button
     private static final String BACK_LABEL = "< Back";
 
+    /** Profiler overlay font, colors of each frame phase and graph scale. */
+    private static final Font PROFILER_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 11);
+    private static final Color[] PROFILER_COLORS = {
+            new Color(120, 120, 255), new Color(80, 200, 255), new Color(255, 80, 80),
+            new Color(255, 160, 60), new Color(255, 230, 80), new Color(160, 160, 160),
+            new Color(255, 120, 220), new Color(80, 230, 120), new Color(200, 255, 200),
+            Color.WHITE};
+    private static final Color PROFILER_BACKGROUND = new Color(0, 0, 0, 180);
+    private static final int PROFILER_PIXELS_PER_MILLI = 3;
+
     /** Sprite types. */
     public enum SpriteType {
         /** Player ship. */
@@ -178,6 +192,15 @@ public final class DrawManager {
         return instance;
     }
 
+    /**
+     * @param type
+     *            Sprite type.
+     * @return Pixels of the sprite, [x][y].
+     */
+    static boolean[][] getSprite(final SpriteType type) {
+        return spriteMap.get(type);
+    }
+
     /**
      * Sets the frame to draw the image on.
      *
@@ -190,16 +213,23 @@ public final class DrawManager {
 
     /**
      * First part of the drawing process. Initialises buffers, draws the
-     * background and prepares the images.
+     * background and prepares the images. Without a frame (headless
+     * benchmarks), drawing stays in the back buffer.
      *
      * @param screen
      *               Screen to draw in.
      */
     public void initDrawing(final Screen screen) {
-        backBuffer = new BufferedImage(screen.getWidth(), screen.getHeight(),
-                BufferedImage.TYPE_INT_RGB);
-
-        graphics = frame.getGraphics();
+        // Reuse the back buffer while the screen size holds; only the
+        // Graphics is recreated, so no state leaks between frames.
+        if (backBuffer == null || backBuffer.getWidth() != screen.getWidth()
+                || backBuffer.getHeight() != screen.getHeight())
+            backBuffer = new BufferedImage(screen.getWidth(), screen.getHeight(),
+                    BufferedImage.TYPE_INT_RGB);
+
+        graphics = frame != null ? frame.getGraphics() : null;
+        if (backBufferGraphics != null)
+            backBufferGraphics.dispose();
         backBufferGraphics = backBuffer.getGraphics();
 
         backBufferGraphics.setColor(Color.BLACK);
@@ -217,6 +247,7 @@ public final class DrawManager {
      *               Screen to draw on.
      */
     public void completeDrawing(final Screen screen) {
+        if (graphics == null) return;
         graphics.drawImage(backBuffer, frame.getInsets().left,
                 frame.getInsets().top, frame);
     }
@@ -301,11 +332,28 @@ public final class DrawManager {
     }
 
     public void triggerExplosion(int x, int y, boolean enemy, boolean finalExplosion) {
-        logger.info("Enemy: "+enemy);
-        logger.info("final: "+finalExplosion);
+        EXPLOSION_LOG.log(enemy, finalExplosion);
         explosions.add(new Explosion(x, y, enemy, finalExplosion));
     }
 
+    /**
+     * @return Number of live explosion particles.
+     */
+    public int getParticleCount() {
+        int count = 0;
+        for (int i = 0; i < explosions.size(); i++)
+            for (Explosion.Particle p : explosions.get(i).getParticles())
+                if (p.active) count++;
+        return count;
+    }
+
+    /**
+     * @return Number of explosions still animating.
+     */
+    public int getExplosionCount() {
+        return explosions.size();
+    }
+
     public void drawExplosions(){
 
         Graphics2D g2d = (Graphics2D) backBufferGraphics;
@@ -759,6 +807,53 @@ public final class DrawManager {
         backBufferGraphics.setColor(Color.WHITE);
         drawCenteredRegularString(screen, returnMenu, screen.getHeight()-50);
     }//ADD This Screen
+    /**
+     * Draws the frame profiler overlay: a stacked graph of the phase times of
+     * the recent frames against the frame budget, and the phase averages.
+     *
+     * @param screen
+     *               Screen to draw on.
+     * @param profiler
+     *               Profiler holding the measurements.
+     */
+    public void drawFrameProfiler(final Screen screen, final FrameProfiler profiler) {
+        String[] lines = profiler.getSummary();
+        int lineHeight = 12;
+        int graphHeight = 60;
+        int x = 8;
+        int y = 72;
+        int width = 2 * FrameProfiler.HISTORY + 8;
+        int height = graphHeight + lines.length * lineHeight + 12;
+
+        backBufferGraphics.setColor(PROFILER_BACKGROUND);
+        backBufferGraphics.fillRect(x, y, width, height);
+
+        // One 2px column per frame, newest on the right.
+        int base = y + graphHeight + 4;
+        for (int age = 0; age < profiler.getFrameCount(); age++) {
+            int column = x + width - 4 - 2 * (age + 1);
+            int top = base;
+            for (int phase = 0; phase < FrameProfiler.PHASES; phase++) {
+                int pixels = (int) (profiler.getPhaseNanos(age, phase) * PROFILER_PIXELS_PER_MILLI / 1_000_000L);
+                if (pixels == 0) continue;
+                pixels = Math.min(pixels, top - y - 4);
+                top -= pixels;
+                backBufferGraphics.setColor(PROFILER_COLORS[phase]);
+                backBufferGraphics.fillRect(column, top, 2, pixels);
+            }
+        }
+        int budget = base - PROFILER_PIXELS_PER_MILLI * 1000 / screen.getFps();
+        backBufferGraphics.setColor(Color.RED);
+        backBufferGraphics.drawLine(x + 4, budget, x + width - 4, budget);
+
+        backBufferGraphics.setFont(PROFILER_FONT);
+        for (int i = 0; i < lines.length; i++) {
+            backBufferGraphics.setColor(i < FrameProfiler.PHASES ? PROFILER_COLORS[i] : Color.WHITE);
+            backBufferGraphics.drawString(lines[i], x + 4, base + 14 + i * lineHeight);
+        }
+        backBufferGraphics.setFont(fontRegular);
+    }
+
     /**
      * Draws high score screen title and instructions.
      *
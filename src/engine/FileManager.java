@@ -63,6 +63,8 @@ public final class FileManager {
      */
     public void loadSprite(final Map<SpriteType, boolean[][]> spriteMap)
             throws IOException {
+        GameEvents.FileOperation event = new GameEvents.FileOperation();
+        event.begin();
 
         try (InputStream inputStream = DrawManager.class.getClassLoader().getResourceAsStream("graphics")) {
             char c;
@@ -79,6 +81,8 @@ public final class FileManager {
                     }
                 logger.fine("Sprite " + sprite.getKey() + " loaded.");
             }
+        } finally {
+            commit(event, "load", "graphics");
         }
     }
 
@@ -95,6 +99,8 @@ public final class FileManager {
      */
     public Font loadFont(final float size) throws IOException,
             FontFormatException {
+        GameEvents.FileOperation event = new GameEvents.FileOperation();
+        event.begin();
         InputStream inputStream = null;
         Font font;
 
@@ -107,6 +113,7 @@ public final class FileManager {
         } finally {
             if (inputStream != null)
                 inputStream.close();
+            commit(event, "load", "font.ttf");
         }
 
         return font;
@@ -127,6 +134,25 @@ public final class FileManager {
         return filePath;
     }
 
+    /**
+     * Ends and commits a flight recorder event for a file operation.
+     *
+     * @param event
+     *      event begun when the operation started
+     * @param operation
+     *      "load" or "save"
+     * @param file
+     *      file name
+     * */
+    private static void commit(GameEvents.FileOperation event, String operation, String file) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.file = file;
+            event.commit();
+        }
+    }
+
     /**
      * Returns the application default scores if there is no user high scores
      * file.
@@ -149,6 +175,8 @@ public final class FileManager {
      *             In case of loading problems.
      */
     public List<Score> loadHighScores() throws IOException {
+        GameEvents.FileOperation event = new GameEvents.FileOperation();
+        event.begin();
         List<Score> highScores = new ArrayList<>();
         InputStream inputStream;
         BufferedReader bufferedReader = null;
@@ -176,6 +204,7 @@ public final class FileManager {
         } finally {
             if (bufferedReader != null)
                 bufferedReader.close();
+            commit(event, "load", "scores.csv");
         }
 
         Collections.sort(highScores);
@@ -192,6 +221,8 @@ public final class FileManager {
      *             In case of loading problems.
      */
     public void saveHighScores(final List<Score> highScores) throws IOException {
+        GameEvents.FileOperation event = new GameEvents.FileOperation();
+        event.begin();
         OutputStream outputStream;
         BufferedWriter bufferedWriter = null;
 
@@ -211,10 +242,12 @@ public final class FileManager {
                 bufferedWriter.write(score.getName() + "," + score.getScore());
                 bufferedWriter.newLine();
             }
+            Metrics.getInstance().fileWritten();
 
         } finally {
             if (bufferedWriter != null)
                 bufferedWriter.close();
+            commit(event, "save", "scores.csv");
         }
     }
 
@@ -225,6 +258,8 @@ public final class FileManager {
      * @throws IOException In case of loading problems.
      */
     public List<Boolean> searchAchievementsByName(String userName) throws IOException {
+        GameEvents.FileOperation event = new GameEvents.FileOperation();
+        event.begin();
         List<Boolean> achievementList = new ArrayList<>();
 
         try {
@@ -267,6 +302,8 @@ public final class FileManager {
             for (int i = 0; i < 5; i++) {
                 achievementList.add(false);
             }
+        } finally {
+            commit(event, "load", "achievement.csv");
         }
 
         return achievementList;
@@ -280,6 +317,8 @@ public final class FileManager {
      * @param unlockedAchievement  A list of booleans representing which achievements have been unlocked.
      */
     public void unlockAchievement(String userName, List<Boolean> unlockedAchievement) {
+        GameEvents.FileOperation event = new GameEvents.FileOperation();
+        event.begin();
         List<String[]> records = new ArrayList<>();
 
         try {
@@ -336,9 +375,12 @@ public final class FileManager {
                     bWriter.newLine();
                 }
             }
+            Metrics.getInstance().fileWritten();
 
         } catch (IOException e) {
             Logger.getLogger(getClass().getName()).info("No achievements to save or error occurred.");
+        } finally {
+            commit(event, "save", "achievement.csv");
         }
     }
 
@@ -354,6 +396,8 @@ public final class FileManager {
      * [2025-10-09] Added in commit: feat: add method to retrieve achievement completer
      */
     public List<String> getAchievementCompleter(Achievement achievement) {
+        GameEvents.FileOperation event = new GameEvents.FileOperation();
+        event.begin();
         List<String> completer = new ArrayList<>();
         try {
             String achievementPath = getFilePath("achievement.csv");
@@ -398,6 +442,8 @@ public final class FileManager {
             logger.warning("Error reading achievement file. Returning default users...");
             completer.add("1:ABC");
             completer.add("2:DEF");
+        } finally {
+            commit(event, "load", "achievement.csv");
         }
 
         return completer;
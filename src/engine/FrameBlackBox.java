@@ -0,0 +1,357 @@
+package engine;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+/**
+ * Flight data recorder for frame hitches.
+ *
+ * Keeps the last few seconds of frames (phase timings from
+ * {@link FrameProfiler}, entity counts, keys held) in a preallocated ring,
+ * and the recent garbage collections reported by the GarbageCollectorMXBean
+ * notifications. When the time from one frame start to the next exceeds the
+ * threshold, the window is copied and written to
+ * blackbox/spike-&lt;time&gt;.txt on a background thread.
+ *
+ * A watchdog thread samples the game thread's stack when a frame runs past
+ * the threshold, so hitches inside the frame come with the code they were
+ * stuck in; hitches between frames (a GC pause during the frame sleep) are
+ * explained by the GC list instead.
+ *
+ * Properties: invaders.blackbox=false disables it,
+ * invaders.blackbox.seconds (default 10) sets the window and
+ * invaders.blackbox.thresholdMillis (default 50) the spike threshold.
+ */
+public final class FrameBlackBox {
+
+    /** Key bits of the input column. */
+    public static final int KEY_LEFT = 1;
+    public static final int KEY_RIGHT = 2;
+    public static final int KEY_FIRE = 4;
+    public static final int KEY_PAUSE = 8;
+
+    /** Frames per second the window is sized for. */
+    private static final int FPS = 60;
+    /** Garbage collections kept. */
+    private static final int GC_CAPACITY = 64;
+    /** Minimum time between two dumps. */
+    private static final long DUMP_INTERVAL_NANOS = 5_000_000_000L;
+    /** How often the watchdog checks the running frame. */
+    private static final long WATCHDOG_PERIOD_MILLIS = 5;
+
+    private static final Path DIRECTORY = Path.of("blackbox");
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    /** Singleton instance of the class. */
+    private static FrameBlackBox instance;
+
+    private final Logger logger;
+    private final boolean enabled;
+    private final long thresholdNanos;
+    private final int capacity;
+
+    /** Frame ring, one slot per frame; written by the game thread only. */
+    private final long[] startNanos;
+    private final long[] intervalNanos;
+    private final long[] workNanos;
+    private final long[] phaseNanos;
+    private final int[] entities;
+    private final int[] bullets;
+    private final int[] particles;
+    private final int[] keys;
+    private int next;
+    private int frames;
+
+    /** Copy of the ring handed to the dump thread. */
+    private final long[] dumpStart;
+    private final long[] dumpInterval;
+    private final long[] dumpWork;
+    private final long[] dumpPhases;
+    private final int[] dumpEntities;
+    private final int[] dumpBullets;
+    private final int[] dumpParticles;
+    private final int[] dumpKeys;
+    private final AtomicBoolean dumping = new AtomicBoolean();
+    private long lastDumpNanos;
+
+    /** Recent garbage collections; written by the notification thread. */
+    private final long[] gcEndNanos = new long[GC_CAPACITY];
+    private final long[] gcDurationMillis = new long[GC_CAPACITY];
+    private final String[] gcNames = new String[GC_CAPACITY];
+    private int gcNext;
+
+    /** Start of the running frame, 0 between frames; read by the watchdog. */
+    private volatile long frameStartNanos;
+    private long lastFrameStartNanos;
+    private volatile Thread gameThread;
+    /** Stack sampled by the watchdog, and the frame it belongs to. */
+    private volatile StackTraceElement[] sampledStack;
+    private volatile long sampledFrameStart;
+    private volatile long sampledAtNanos;
+
+    private final ExecutorService writer;
+
+    /**
+     * private constructor.
+     */
+    private FrameBlackBox() {
+        this.logger = Core.getLogger();
+        this.enabled = !"false".equals(System.getProperty("invaders.blackbox"));
+        this.thresholdNanos = Long.getLong("invaders.blackbox.thresholdMillis", 50) * 1_000_000L;
+        this.capacity = (int) Math.max(1, Long.getLong("invaders.blackbox.seconds", 10)) * FPS;
+
+        startNanos = new long[capacity];
+        intervalNanos = new long[capacity];
+        workNanos = new long[capacity];
+        phaseNanos = new long[capacity * FrameProfiler.PHASES];
+        entities = new int[capacity];
+        bullets = new int[capacity];
+        particles = new int[capacity];
+        keys = new int[capacity];
+        dumpStart = new long[capacity];
+        dumpInterval = new long[capacity];
+        dumpWork = new long[capacity];
+        dumpPhases = new long[capacity * FrameProfiler.PHASES];
+        dumpEntities = new int[capacity];
+        dumpBullets = new int[capacity];
+        dumpParticles = new int[capacity];
+        dumpKeys = new int[capacity];
+
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "blackbox-writer");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        if (enabled) {
+            listenToGarbageCollections();
+            Thread watchdog = new Thread(this::watch, "blackbox-watchdog");
+            watchdog.setDaemon(true);
+            watchdog.start();
+        }
+    }
+
+    /**
+     * Returns shared instance of FrameBlackBox.
+     *
+     * @return Shared instance of FrameBlackBox.
+     */
+    public static FrameBlackBox getInstance() {
+        if (instance == null)
+            instance = new FrameBlackBox();
+        return instance;
+    }
+
+    private void listenToGarbageCollections() {
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (!(gc instanceof NotificationEmitter emitter)) continue;
+            emitter.addNotificationListener((notification, handback) -> {
+                if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType()))
+                    return;
+                GarbageCollectionNotificationInfo info =
+                        GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                synchronized (gcEndNanos) {
+                    int slot = gcNext++ % GC_CAPACITY;
+                    gcEndNanos[slot] = System.nanoTime();
+                    gcDurationMillis[slot] = info.getGcInfo().getDuration();
+                    gcNames[slot] = info.getGcName() + " (" + info.getGcCause() + ")";
+                }
+            }, null, null);
+        }
+    }
+
+    /**
+     * Samples the game thread's stack once per frame that runs past the
+     * threshold.
+     */
+    private void watch() {
+        while (true) {
+            try {
+                Thread.sleep(WATCHDOG_PERIOD_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            long start = frameStartNanos;
+            Thread thread = gameThread;
+            if (start == 0 || thread == null || sampledFrameStart == start) continue;
+            long now = System.nanoTime();
+            if (now - start > thresholdNanos) {
+                sampledStack = thread.getStackTrace();
+                sampledAtNanos = now;
+                sampledFrameStart = start;
+            }
+        }
+    }
+
+    /**
+     * Forgets the previous frame, so the gap before the first frame of a
+     * screen is not taken for a hitch.
+     */
+    public void resetInterval() {
+        lastFrameStartNanos = 0;
+    }
+
+    /**
+     * Marks the start of a frame on the game thread.
+     */
+    public void beginFrame() {
+        if (!enabled) return;
+        gameThread = Thread.currentThread();
+        frameStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Records the frame that just ended and dumps the window if it was a
+     * spike.
+     *
+     * @param profiler
+     *            Profiler holding the phase times of the frame.
+     * @param entityCount
+     *            Ships on screen.
+     * @param bulletCount
+     *            Bullets on screen.
+     * @param particleCount
+     *            Live explosion particles.
+     * @param keyBits
+     *            KEY_* bits of the keys held.
+     */
+    public void endFrame(final FrameProfiler profiler, final int entityCount, final int bulletCount,
+                         final int particleCount, final int keyBits) {
+        if (!enabled) return;
+        long start = frameStartNanos;
+        long end = System.nanoTime();
+        frameStartNanos = 0;
+
+        int slot = next;
+        startNanos[slot] = start;
+        intervalNanos[slot] = lastFrameStartNanos == 0 ? 0 : start - lastFrameStartNanos;
+        workNanos[slot] = end - start;
+        for (int phase = 0; phase < FrameProfiler.PHASES; phase++)
+            phaseNanos[slot * FrameProfiler.PHASES + phase] = profiler.getPhaseNanos(0, phase);
+        entities[slot] = entityCount;
+        bullets[slot] = bulletCount;
+        particles[slot] = particleCount;
+        keys[slot] = keyBits;
+        next = (slot + 1) % capacity;
+        if (frames < capacity) frames++;
+        lastFrameStartNanos = start;
+
+        boolean spike = intervalNanos[slot] > thresholdNanos || workNanos[slot] > thresholdNanos;
+        if (spike && end - lastDumpNanos >= DUMP_INTERVAL_NANOS && dumping.compareAndSet(false, true)) {
+            lastDumpNanos = end;
+            dump(slot, start);
+        }
+    }
+
+    /**
+     * Copies the ring in frame order and writes it on the writer thread.
+     */
+    private void dump(final int spikeSlot, final long spikeStart) {
+        int count = frames;
+        int oldest = (next - count + capacity) % capacity;
+        for (int i = 0; i < count; i++) {
+            int from = (oldest + i) % capacity;
+            dumpStart[i] = startNanos[from];
+            dumpInterval[i] = intervalNanos[from];
+            dumpWork[i] = workNanos[from];
+            System.arraycopy(phaseNanos, from * FrameProfiler.PHASES, dumpPhases, i * FrameProfiler.PHASES,
+                    FrameProfiler.PHASES);
+            dumpEntities[i] = entities[from];
+            dumpBullets[i] = bullets[from];
+            dumpParticles[i] = particles[from];
+            dumpKeys[i] = keys[from];
+        }
+        StackTraceElement[] stack = sampledFrameStart == spikeStart ? sampledStack : null;
+        long sampledAt = sampledAtNanos;
+        long interval = intervalNanos[spikeSlot];
+        long work = workNanos[spikeSlot];
+
+        writer.execute(() -> {
+            Path file = DIRECTORY.resolve("spike-" + LocalDateTime.now().format(STAMP) + ".txt");
+            try {
+                Files.createDirectories(DIRECTORY);
+                write(file, count, spikeStart, interval, work, stack, sampledAt);
+                logger.warning("Frame spike of " + Math.max(interval, work) / 1_000_000
+                        + " ms, black box written to " + file);
+            } catch (IOException e) {
+                logger.warning("Could not write black box " + file + ": " + e.getMessage());
+            } finally {
+                dumping.set(false);
+            }
+        });
+    }
+
+    private void write(final Path file, final int count, final long spikeStart, final long interval,
+                       final long work, final StackTraceElement[] stack, final long sampledAt)
+            throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write(String.format(Locale.ROOT,
+                    "# Frame spike: %.1f ms since the previous frame start, %.1f ms of work (threshold %d ms)%n",
+                    interval / 1e6, work / 1e6, thresholdNanos / 1_000_000));
+            out.write("# Times are in ms relative to the start of the spike frame.\n");
+
+            if (stack != null) {
+                out.write(String.format(Locale.ROOT, "# Game thread stack at %+.1f ms:%n",
+                        (sampledAt - spikeStart) / 1e6));
+                for (StackTraceElement element : stack)
+                    out.write("#   at " + element + "\n");
+            } else {
+                out.write("# No game thread stack: the frame itself stayed under the threshold.\n");
+            }
+
+            out.write("# Garbage collections:\n");
+            synchronized (gcEndNanos) {
+                long windowStart = count > 0 ? dumpStart[0] : spikeStart;
+                for (int i = Math.max(0, gcNext - GC_CAPACITY); i < gcNext; i++) {
+                    int slot = i % GC_CAPACITY;
+                    if (gcEndNanos[slot] < windowStart) continue;
+                    out.write(String.format(Locale.ROOT, "#   ended %+.1f ms, %d ms, %s%n",
+                            (gcEndNanos[slot] - spikeStart) / 1e6, gcDurationMillis[slot], gcNames[slot]));
+                }
+            }
+
+            out.write("startMs,intervalUs,workUs");
+            for (int phase = 0; phase < FrameProfiler.PHASES; phase++)
+                out.write("," + FrameProfiler.getPhaseName(phase) + "Us");
+            out.write(",entities,bullets,particles,keys\n");
+            for (int i = 0; i < count; i++) {
+                StringBuilder line = new StringBuilder(160);
+                line.append(String.format(Locale.ROOT, "%.1f", (dumpStart[i] - spikeStart) / 1e6))
+                        .append(',').append(dumpInterval[i] / 1000)
+                        .append(',').append(dumpWork[i] / 1000);
+                for (int phase = 0; phase < FrameProfiler.PHASES; phase++)
+                    line.append(',').append(dumpPhases[i * FrameProfiler.PHASES + phase] / 1000);
+                line.append(',').append(dumpEntities[i])
+                        .append(',').append(dumpBullets[i])
+                        .append(',').append(dumpParticles[i])
+                        .append(',').append(keyString(dumpKeys[i]))
+                        .append('\n');
+                out.write(line.toString());
+            }
+        }
+    }
+
+    private static String keyString(final int bits) {
+        StringBuilder keys = new StringBuilder(4);
+        if ((bits & KEY_LEFT) != 0) keys.append('L');
+        if ((bits & KEY_RIGHT) != 0) keys.append('R');
+        if ((bits & KEY_FIRE) != 0) keys.append('F');
+        if ((bits & KEY_PAUSE) != 0) keys.append('P');
+        return keys.length() == 0 ? "-" : keys.toString();
+    }
+}
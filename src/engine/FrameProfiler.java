@@ -0,0 +1,304 @@
+package engine;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Measures how long each phase of a game frame takes, for the profiler
+ * overlay drawn by GameScreen (toggled with F3).
+ *
+ * The game thread calls beginFrame(), then lap(phase) after each phase,
+ * which charges the time since the previous lap to that phase, then
+ * endFrame(). Laps of the same phase within a frame add up. Recording only
+ * reads System.nanoTime() and stores longs into preallocated arrays, so it
+ * stays on all the time; the overlay text is rebuilt twice a second and
+ * only while the overlay is shown. While a flight recording runs, each frame
+ * is also emitted as a {@link GameEvents.Frame}.
+ *
+ * Harnesses can also have the bytes allocated by the game thread charged to
+ * each phase, see setAllocationTracking(). This reads the thread allocation
+ * counter at every lap, so it is off by default.
+ */
+public final class FrameProfiler {
+
+    /** Frame phases, in the order they are drawn in the overlay. */
+    public static final int INPUT = 0;
+    public static final int UPDATE = 1;
+    public static final int COLLISIONS = 2;
+    public static final int CLEANUP = 3;
+    public static final int EFFECTS = 4;
+    public static final int DRAW_STARFIELD = 5;
+    public static final int DRAW_EXPLOSIONS = 6;
+    public static final int DRAW_ENTITIES = 7;
+    public static final int DRAW_HUD = 8;
+    public static final int DRAW_PRESENT = 9;
+    public static final int PHASES = 10;
+
+    /** Phase names shown in the overlay. */
+    private static final String[] PHASE_NAMES = {"input", "update", "collisions", "cleanup", "effects",
+            "stars", "explosions", "entities", "hud", "present"};
+
+    /** Frames kept for the graph. */
+    public static final int HISTORY = 120;
+    /** Time between two rebuilds of the overlay text. */
+    private static final long SUMMARY_INTERVAL_NANOS = 500_000_000L;
+
+    /** Source of the allocation counter, null if the JVM has none. */
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+            ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                    && bean.isThreadAllocatedMemorySupported() ? bean : null;
+
+    /** Singleton instance of the class. */
+    private static FrameProfiler instance;
+
+    /** Phase times of the last HISTORY frames, [frame][phase]. */
+    private final long[][] history = new long[HISTORY][PHASES];
+    /** Index the next frame is written to. */
+    private int next;
+    /** Frames recorded, capped at HISTORY. */
+    private int frames;
+
+    /** Phase times of the frame being measured. */
+    private final long[] current = new long[PHASES];
+    private long lastLap;
+    /** Flight recorder event of the frame, only while a recording runs. */
+    private GameEvents.Frame frameEvent;
+
+    /** Whether allocations are charged to phases. */
+    private boolean trackAllocations;
+    /** Bytes allocated per phase in the frame being measured, and in the last frame. */
+    private final long[] currentBytes = new long[PHASES];
+    private final long[] lastFrameBytes = new long[PHASES];
+    private long lastLapBytes;
+
+    /** Counts reported by the screen for the last frame. */
+    private int entities;
+    private int bullets;
+    private int pooled;
+    private int particles;
+
+    /** Allocation rate, measured over the summary interval. */
+    private long allocationWindowStart;
+    private long allocatedAtWindowStart;
+    private long bytesPerSecond;
+
+    /** Overlay text, rebuilt every SUMMARY_INTERVAL_NANOS while visible. */
+    private final String[] summary = new String[PHASES + 2];
+    private long summaryTime;
+
+    /** Whether the overlay is shown. */
+    private boolean visible;
+
+    /**
+     * private constructor.
+     */
+    private FrameProfiler() {
+        Arrays.fill(summary, "");
+    }
+
+    /**
+     * Returns shared instance of FrameProfiler.
+     *
+     * @return Shared instance of FrameProfiler.
+     */
+    public static FrameProfiler getInstance() {
+        if (instance == null)
+            instance = new FrameProfiler();
+        return instance;
+    }
+
+    /**
+     * Starts measuring a frame.
+     */
+    public void beginFrame() {
+        for (int phase = 0; phase < PHASES; phase++)
+            current[phase] = 0;
+        frameEvent = GameEvents.isFrameRecorded() ? new GameEvents.Frame() : null;
+        if (frameEvent != null)
+            frameEvent.begin();
+        if (trackAllocations) {
+            for (int phase = 0; phase < PHASES; phase++)
+                currentBytes[phase] = 0;
+            lastLapBytes = THREAD_BEAN.getCurrentThreadAllocatedBytes();
+        }
+        lastLap = System.nanoTime();
+    }
+
+    /**
+     * Charges the time since the previous lap to a phase.
+     *
+     * @param phase
+     *            One of the phase constants.
+     */
+    public void lap(final int phase) {
+        long now = System.nanoTime();
+        current[phase] += now - lastLap;
+        lastLap = now;
+        if (trackAllocations) {
+            long bytes = THREAD_BEAN.getCurrentThreadAllocatedBytes();
+            currentBytes[phase] += bytes - lastLapBytes;
+            lastLapBytes = bytes;
+        }
+    }
+
+    /**
+     * Ends the frame, storing its phase times and the counts seen in it.
+     *
+     * @param entities
+     *            Ships on screen.
+     * @param bullets
+     *            Bullets on screen.
+     * @param pooled
+     *            Bullets and items waiting in their pools.
+     * @param particles
+     *            Live explosion particles.
+     */
+    public void endFrame(final int entities, final int bullets, final int pooled, final int particles) {
+        System.arraycopy(current, 0, history[next], 0, PHASES);
+        next = (next + 1) % HISTORY;
+        if (frames < HISTORY) frames++;
+        this.entities = entities;
+        this.bullets = bullets;
+        this.pooled = pooled;
+        this.particles = particles;
+        if (frameEvent != null)
+            commitFrameEvent();
+        if (trackAllocations)
+            System.arraycopy(currentBytes, 0, lastFrameBytes, 0, PHASES);
+
+        long now = System.nanoTime();
+        if (now - allocationWindowStart >= SUMMARY_INTERVAL_NANOS) {
+            long allocated = THREAD_BEAN == null ? 0 : THREAD_BEAN.getCurrentThreadAllocatedBytes();
+            if (allocationWindowStart != 0)
+                bytesPerSecond = (allocated - allocatedAtWindowStart) * 1_000_000_000L
+                        / (now - allocationWindowStart);
+            allocationWindowStart = now;
+            allocatedAtWindowStart = allocated;
+        }
+    }
+
+    private void commitFrameEvent() {
+        GameEvents.Frame event = frameEvent;
+        frameEvent = null;
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.input = current[INPUT];
+        event.update = current[UPDATE];
+        event.collisions = current[COLLISIONS];
+        event.cleanup = current[CLEANUP];
+        event.effects = current[EFFECTS];
+        event.drawStarfield = current[DRAW_STARFIELD];
+        event.drawExplosions = current[DRAW_EXPLOSIONS];
+        event.drawEntities = current[DRAW_ENTITIES];
+        event.drawHud = current[DRAW_HUD];
+        event.present = current[DRAW_PRESENT];
+        event.entities = entities;
+        event.bullets = bullets;
+        event.particles = particles;
+        event.commit();
+    }
+
+    /**
+     * @param phase
+     *            One of the phase constants.
+     * @return Short name of the phase.
+     */
+    public static String getPhaseName(final int phase) {
+        return PHASE_NAMES[phase];
+    }
+
+    /**
+     * Turns charging allocations to phases on or off. Takes effect at the
+     * next beginFrame().
+     *
+     * @param enabled
+     *            Whether to track allocations.
+     * @return Whether tracking is on; false if the JVM cannot count
+     *         allocations.
+     */
+    public boolean setAllocationTracking(final boolean enabled) {
+        trackAllocations = enabled && THREAD_BEAN != null;
+        return trackAllocations;
+    }
+
+    /**
+     * @param phase
+     *            One of the phase constants.
+     * @return Bytes the game thread allocated in that phase of the last
+     *         frame, if allocation tracking is on.
+     */
+    public long getLastFrameAllocatedBytes(final int phase) {
+        return lastFrameBytes[phase];
+    }
+
+    /**
+     * Shows or hides the overlay.
+     */
+    public void toggle() {
+        visible = !visible;
+    }
+
+    /**
+     * @return Whether the overlay is shown.
+     */
+    public boolean isVisible() {
+        return visible;
+    }
+
+    /**
+     * @return Frames available to the graph, at most HISTORY.
+     */
+    public int getFrameCount() {
+        return frames;
+    }
+
+    /**
+     * @param age
+     *            0 for the last frame, 1 for the one before, ...
+     * @param phase
+     *            One of the phase constants.
+     * @return Time the phase took in that frame, in nanoseconds.
+     */
+    public long getPhaseNanos(final int age, final int phase) {
+        return history[(next - 1 - age + 2 * HISTORY) % HISTORY][phase];
+    }
+
+    /**
+     * Returns the overlay text: one line per phase with its average and
+     * maximum over the history, then the frame total and the counts.
+     *
+     * @return Lines to draw; the array is reused.
+     */
+    public String[] getSummary() {
+        long now = System.nanoTime();
+        if (now - summaryTime < SUMMARY_INTERVAL_NANOS) return summary;
+        summaryTime = now;
+
+        long totalSum = 0;
+        long totalMax = 0;
+        for (int age = 0; age < frames; age++) {
+            long total = 0;
+            for (int phase = 0; phase < PHASES; phase++)
+                total += getPhaseNanos(age, phase);
+            totalSum += total;
+            totalMax = Math.max(totalMax, total);
+        }
+        for (int phase = 0; phase < PHASES; phase++) {
+            long sum = 0;
+            long max = 0;
+            for (int age = 0; age < frames; age++) {
+                long nanos = getPhaseNanos(age, phase);
+                sum += nanos;
+                max = Math.max(max, nanos);
+            }
+            summary[phase] = String.format(Locale.ROOT, "%-10s %6.0f %6.0f us", PHASE_NAMES[phase],
+                    frames == 0 ? 0.0 : sum / 1000.0 / frames, max / 1000.0);
+        }
+        summary[PHASES] = String.format(Locale.ROOT, "%-10s %6.0f %6.0f us", "frame",
+                frames == 0 ? 0.0 : totalSum / 1000.0 / frames, totalMax / 1000.0);
+        summary[PHASES + 1] = String.format(Locale.ROOT, "ent %d  bul %d  pool %d  fx %d  %d KB/s",
+                entities, bullets, pooled, particles, bytesPerSecond / 1024);
+        return summary;
+    }
+}
@@ -0,0 +1,191 @@
+package engine;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder events emitted by the game, so frame spikes can be
+ * lined up with GC, JIT and I/O activity in the same recording.
+ *
+ * The defaults below apply to any recording; res/invaders.jfc is the
+ * profile to ship, layered on the JDK one:
+ * <pre>
+ * java -XX:StartFlightRecording:settings=default,settings=res/invaders.jfc,filename=game.jfr ...
+ * </pre>
+ * Events follow the usual JFR pattern (create, begin, end, shouldCommit,
+ * commit), which costs nothing when no recording is running.
+ */
+public final class GameEvents {
+
+    /** Whether some recording is running; kept up to date by a listener. */
+    private static volatile boolean recording;
+    /** Type of the Frame event, looked up on first use. */
+    private static volatile EventType frameType;
+
+    static {
+        if (FlightRecorder.isAvailable()) {
+            FlightRecorder.addListener(new FlightRecorderListener() {
+                @Override
+                public void recordingStateChanged(final Recording changed) {
+                    updateRecording();
+                }
+            });
+            // Recordings started on the command line run before the listener exists.
+            if (FlightRecorder.isInitialized())
+                updateRecording();
+        }
+    }
+
+    private static void updateRecording() {
+        boolean running = false;
+        for (Recording r : FlightRecorder.getFlightRecorder().getRecordings())
+            running |= r.getState() == RecordingState.RUNNING;
+        recording = running;
+    }
+
+    private GameEvents() {
+    }
+
+    /**
+     * Cheap check for events that span several methods, where an event
+     * object would otherwise be allocated every time.
+     *
+     * @return Whether a flight recording is running.
+     */
+    public static boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * Like {@link #isRecording()}, for the Frame event: false if no running
+     * recording has it enabled.
+     *
+     * @return Whether Frame events are being recorded.
+     */
+    public static boolean isFrameRecorded() {
+        if (!recording) return false;
+        EventType type = frameType;
+        if (type == null)
+            frameType = type = EventType.getEventType(Frame.class);
+        return type.isEnabled();
+    }
+
+    /** One game frame, with the time of each phase. */
+    @Name("invaders.Frame")
+    @Label("Frame")
+    @Category({"Invaders", "Game Loop"})
+    @Description("Update and draw of one game frame, broken down by phase")
+    @Threshold("20 ms")
+    @StackTrace(false)
+    public static final class Frame extends Event {
+        @Label("Input") @Timespan(Timespan.NANOSECONDS) public long input;
+        @Label("Update") @Timespan(Timespan.NANOSECONDS) public long update;
+        @Label("Collisions") @Timespan(Timespan.NANOSECONDS) public long collisions;
+        @Label("Cleanup") @Timespan(Timespan.NANOSECONDS) public long cleanup;
+        @Label("Effects") @Timespan(Timespan.NANOSECONDS) public long effects;
+        @Label("Draw Starfield") @Timespan(Timespan.NANOSECONDS) public long drawStarfield;
+        @Label("Draw Explosions") @Timespan(Timespan.NANOSECONDS) public long drawExplosions;
+        @Label("Draw Entities") @Timespan(Timespan.NANOSECONDS) public long drawEntities;
+        @Label("Draw HUD") @Timespan(Timespan.NANOSECONDS) public long drawHud;
+        @Label("Present") @Timespan(Timespan.NANOSECONDS) public long present;
+        @Label("Entities") public int entities;
+        @Label("Bullets") public int bullets;
+        @Label("Particles") public int particles;
+    }
+
+    /** One pass of the collision checks. */
+    @Name("invaders.Collisions")
+    @Label("Collisions")
+    @Category({"Invaders", "Game Loop"})
+    @Description("Bullet collision checks of one frame")
+    @Threshold("1 ms")
+    @StackTrace(false)
+    public static final class Collisions extends Event {
+        @Label("Bullets") @Description("Bullets checked") public int bullets;
+        @Label("Targets") @Description("Enemy ships in the formation") public int targets;
+        @Label("Hits") @Description("Bullets that hit a ship") public int hits;
+    }
+
+    /** A sound requested from SoundManager. */
+    @Name("invaders.SoundPlay")
+    @Label("Sound Play")
+    @Category({"Invaders", "Audio"})
+    @StackTrace(false)
+    public static final class SoundPlay extends Event {
+        @Label("Kind") @Description("once, loop or music") public String kind;
+        @Label("Resource") public String resource;
+    }
+
+    /** A file loaded or saved by FileManager. */
+    @Name("invaders.FileOperation")
+    @Label("File Operation")
+    @Category({"Invaders", "I/O"})
+    @Threshold("0 ms")
+    public static final class FileOperation extends Event {
+        @Label("Operation") @Description("load or save") public String operation;
+        @Label("File") public String file;
+    }
+
+    /** One level, from its screen opening to closing. */
+    @Name("invaders.Level")
+    @Label("Level")
+    @Category({"Invaders", "Game Loop"})
+    @StackTrace(false)
+    public static final class Level extends Event {
+        @Label("Level") public int level;
+        @Label("Score") public int score;
+        @Label("Lives") public int lives;
+        @Label("Cleared") public boolean cleared;
+    }
+
+    /** A bullet or item that had to be created because its pool was empty. */
+    @Name("invaders.PoolMiss")
+    @Label("Pool Miss")
+    @Category({"Invaders", "Memory"})
+    @StackTrace(false)
+    public static final class PoolMiss extends Event {
+        @Label("Pool") @Description("bullet or item") public String pool;
+    }
+
+    /**
+     * Records a SoundManager request.
+     *
+     * @param kind
+     *            "once", "loop" or "music".
+     * @param resource
+     *            Sound resource path.
+     */
+    public static void soundPlayed(final String kind, final String resource) {
+        SoundPlay event = new SoundPlay();
+        if (event.shouldCommit()) {
+            event.kind = kind;
+            event.resource = resource;
+            event.commit();
+        }
+    }
+
+    /**
+     * Records a pool miss.
+     *
+     * @param pool
+     *            "bullet" or "item".
+     */
+    public static void poolMiss(final String pool) {
+        PoolMiss event = new PoolMiss();
+        if (event.shouldCommit()) {
+            event.pool = pool;
+            event.commit();
+        }
+    }
+}
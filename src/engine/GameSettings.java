@@ -17,6 +17,10 @@ import java.util.logging.Logger;
 public class GameSettings {
 
 	private static final Logger LOGGER = Logger.getLogger(Core.class.getSimpleName());
+	/** Stage definitions edited by hand. */
+	static final Path LEVEL_CSV = Paths.get("res", "level.csv");
+	/** Compiled form of LEVEL_CSV. */
+	static final Path LEVEL_PACK = Paths.get("res", "level.pack");
 	/** Width of the level's enemy formation. */
 	private final int formationWidth;
 	/** Height of the level's enemy formation. */
@@ -127,36 +131,22 @@ public class GameSettings {
 		return changeDataList;
 	}
 
+	/**
+	 * Loads every stage from res/level.csv through the compiled level pack.
+	 * The pack is rebuilt only when the CSV changes, and each stage is decoded
+	 * the first time it is requested from the returned list.
+	 *
+	 * @return Read-only list of stage settings.
+	 */
 	public static List<GameSettings> getGameSettings(){
-		List<GameSettings> result = new ArrayList<>();
-		List<StageData> stageDataList;
-
-		GameSettings setting;
-
 		try {
-			stageDataList = parseStages(Paths.get("res", "level.csv"));
-			for(StageData s : stageDataList) {
-				setting = s.settings;
-				setting.changeDataList = new ArrayList<>();
-
-				setting.changeDataList.addAll(s.changeList);
-				result.add(setting);
-			}
+			return LevelPack.load(LEVEL_CSV, LEVEL_PACK).asList();
 		} catch (Exception e) {
-			LOGGER.info("Failed Loading Data: There is no such file named " + e.getMessage());
-			LOGGER.info("By the error, game is closing.");
-			System.exit(1);
-			return Collections.emptyList();
+			LOGGER.info("Failed Loading Data: " + e.getMessage());
 		}
-
-		if(stageDataList.isEmpty()) {
-			LOGGER.info("Failed Loading Data: There is no data in level.csv file.");
-			LOGGER.info("By the error, game is closing.");
-			System.exit(1);
-			return Collections.emptyList();
-		}
-
-		return result;
+		LOGGER.info("By the error, game is closing.");
+		System.exit(1);
+		return Collections.emptyList();
 	}
 
 
@@ -181,6 +171,30 @@ public class GameSettings {
 		this.changeDataList = new ArrayList<>();
 	}
 
+	/**
+	 * Constructor with the list of enemy changes, used by the level pack.
+	 *
+	 * @param formationWidth
+	 *                          Width of the level's enemy formation.
+	 * @param formationHeight
+	 *                          Height of the level's enemy formation.
+	 * @param baseSpeed
+	 *                          Speed of the enemies.
+	 * @param shootingFrequency
+	 *                          Frecuency of enemy shootings, +/- 30%.
+	 * @param changeDataList
+	 *                          Enemies changed from the default formation.
+	 */
+	GameSettings(final int formationWidth, final int formationHeight,
+				 final int baseSpeed, final int shootingFrequency,
+				 final List<ChangeData> changeDataList) {
+		this.formationWidth = formationWidth;
+		this.formationHeight = formationHeight;
+		this.baseSpeed = baseSpeed;
+		this.shootingFrequency = shootingFrequency;
+		this.changeDataList = Collections.unmodifiableList(changeDataList);
+	}
+
 	/**
 	 * @return the formationWidth
 	 */
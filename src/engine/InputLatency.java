@@ -0,0 +1,109 @@
+package engine;
+
+/**
+ * Measures how long a key press takes to affect the game and to reach the
+ * screen.
+ *
+ * InputManager stamps each press with the time the OS reported it
+ * (KeyEvent.getWhen(), moved onto the System.nanoTime() clock) and passes
+ * it on when the game thread polls the press. The first tick that acts on
+ * the keys takes the stamps of the presses it consumed and
+ * records key-to-simulation; the next presented frame records
+ * key-to-present. Both go to the {@link Metrics} histograms. Presses made
+ * while the game ignores input (countdown, pause) are dropped rather than
+ * measured.
+ */
+public final class InputLatency {
+
+    private static final int NUM_KEYS = 256;
+
+    /** Singleton instance of the class. */
+    private static InputLatency instance;
+
+    /** Press stamps not yet taken by a tick. All state is game thread only. */
+    private final long[] pending = new long[NUM_KEYS];
+    /** Stamps of consumed presses waiting for their frame. */
+    private final long[] awaitingPresent = new long[NUM_KEYS];
+    private boolean anyAwaiting;
+
+    /**
+     * private constructor.
+     */
+    private InputLatency() {
+    }
+
+    /**
+     * Returns shared instance of InputLatency.
+     *
+     * @return Shared instance of InputLatency.
+     */
+    public static synchronized InputLatency getInstance() {
+        if (instance == null)
+            instance = new InputLatency();
+        return instance;
+    }
+
+    /**
+     * Stamps a key press; a key pressed again before a tick keeps its first
+     * stamp.
+     *
+     * @param keyCode
+     *            Key pressed.
+     * @param eventNanos
+     *            When the press happened, System.nanoTime() clock.
+     */
+    void captured(final int keyCode, final long eventNanos) {
+        if (pending[keyCode] == 0)
+            pending[keyCode] = eventNanos;
+    }
+
+    /**
+     * Takes the presses made since the previous tick, on the game thread.
+     *
+     * @param consumed
+     *            Whether this tick acted on input; if not, the presses are
+     *            dropped.
+     */
+    public void tick(final boolean consumed) {
+        long now = System.nanoTime();
+        Metrics metrics = Metrics.getInstance();
+        for (int key = 0; key < NUM_KEYS; key++) {
+            if (pending[key] == 0) continue;
+            long pressed = pending[key];
+            pending[key] = 0;
+            if (!consumed) continue;
+            metrics.recordInputToSimulation(now - pressed);
+            if (awaitingPresent[key] == 0) {
+                awaitingPresent[key] = pressed;
+                anyAwaiting = true;
+            }
+        }
+    }
+
+    /**
+     * Records key-to-present for the presses consumed since the last frame
+     * was shown. Call right after the frame is handed to the screen.
+     */
+    public void presented() {
+        if (!anyAwaiting) return;
+        long now = System.nanoTime();
+        Metrics metrics = Metrics.getInstance();
+        for (int key = 0; key < NUM_KEYS; key++) {
+            if (awaitingPresent[key] == 0) continue;
+            metrics.recordInputToPresent(now - awaitingPresent[key]);
+            awaitingPresent[key] = 0;
+        }
+        anyAwaiting = false;
+    }
+
+    /**
+     * Drops every stamp, e.g. when a screen starts.
+     */
+    public void reset() {
+        for (int key = 0; key < NUM_KEYS; key++) {
+            pending[key] = 0;
+            awaitingPresent[key] = 0;
+        }
+        anyAwaiting = false;
+    }
+}
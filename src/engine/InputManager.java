@@ -13,6 +13,12 @@ import java.awt.event.MouseMotionListener;//add this line
 /**
  * Manages keyboard input for the provided screen.
  *
+ * Listener callbacks run on the AWT event thread and only queue timestamped
+ * events (see {@link InputQueue}). The game thread calls poll() once per
+ * tick, which drains the queue into an {@link InputSnapshot}; every query
+ * below reads that snapshot, so the screens see one consistent state per
+ * tick and a tap shorter than a tick is not lost.
+ *
  * @author <a href="mailto:RobertoIA1987@gmail.com">Roberto Izquierdo Amo</a>
  *
  */
@@ -22,25 +28,31 @@ public final class InputManager implements KeyListener, MouseListener, MouseMoti
 
 	/** Number of recognised keys. */
 	private static final int NUM_KEYS = 256;
-	/** Array with the keys marked as pressed or not. */
-	private static boolean[] keys;
-
-    /** Mouse pressed state. */
-    private static  boolean mousePressed; // add this line
+	/** Characters typed and not yet read, kept in order. */
+	private static final int TYPED_CAPACITY = 64;
 
 	/** Singleton instance of the class. */
 	private static InputManager instance;
-    /** Last character typed. */
-    private static char lastCharTyped;
-    /** Flag to check if a character was typed. */
-    private static boolean charTyped;
 
+    /** Events from the AWT thread to the game thread. */
+    private final InputQueue queue = new InputQueue();
+    /** Snapshot of the current tick and the one being built next. */
+    private InputSnapshot current = new InputSnapshot(NUM_KEYS);
+    private InputSnapshot next = new InputSnapshot(NUM_KEYS);
+    /** Applies drained events to the next snapshot. */
+    private final InputQueue.Handler applier = this::apply;
+
+    /** Latest mouse position, x in the high half; written by the AWT thread. */
+    private volatile long mousePosition;
 
-    // add three variable
+    // State below is owned by the game thread and filled in by poll().
 
-    private static int mouseX;
-    private static int mouseY;
-    private static boolean mouseClicked;
+    /** Typed characters not yet read. */
+    private final char[] typed = new char[TYPED_CAPACITY];
+    private int typedHead;
+    private int typedCount;
+
+    private boolean mouseClicked;
 
 	/**
      *  Declare variables to save and return input keys
@@ -69,9 +81,6 @@ public final class InputManager implements KeyListener, MouseListener, MouseMoti
 	 * Private constructor.
 	 */
 	private InputManager() {
-		keys = new boolean[NUM_KEYS];
-        lastCharTyped = '\0';
-        charTyped = false;
 	}
 
 	/**
@@ -85,28 +94,88 @@ public final class InputManager implements KeyListener, MouseListener, MouseMoti
 		return instance;
 	}
     /**
-     * Returns the last character typed and resets the flag.
+     * Drains the input queued since the last call into a new snapshot.
+     * Called by the game thread at the start of every tick.
      *
-     * @return Last character typed, or '\0' if none.
+     * @return Snapshot of this tick.
      */
-    public char getLastCharTyped() {
-        if (charTyped) {
-            charTyped = false;
-            return lastCharTyped;
+    public InputSnapshot poll() {
+        InputSnapshot snapshot = next;
+        snapshot.carryOver(current);
+        queue.drain(applier);
+        long position = mousePosition;
+        snapshot.mouseX = (int) (position >> 32);
+        snapshot.mouseY = (int) position;
+        next = current;
+        current = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * Applies one queued event to the snapshot being built.
+     */
+    private void apply(final int type, final int a, final int b, final long nanos) {
+        InputSnapshot snapshot = next;
+        switch (type) {
+            case InputQueue.KEY_PRESSED:
+                if (snapshot.press(a))
+                    InputLatency.getInstance().captured(a, nanos);
+                lastPressedKey = a;
+                break;
+            case InputQueue.KEY_RELEASED:
+                snapshot.release(a);
+                break;
+            case InputQueue.KEY_TYPED:
+                if (typedCount == TYPED_CAPACITY) {
+                    // Nobody is reading text; keep the latest characters.
+                    typedHead = (typedHead + 1) % TYPED_CAPACITY;
+                    typedCount--;
+                }
+                typed[(typedHead + typedCount++) % TYPED_CAPACITY] = (char) a;
+                break;
+            case InputQueue.MOUSE_PRESSED:
+                snapshot.mouseDown = true;
+                break;
+            case InputQueue.MOUSE_RELEASED:
+                snapshot.mouseDown = false;
+                mouseClicked = true;
+                break;
+            default:
+                break;
         }
-        return '\0';
+    }
+
+    /**
+     * @return Snapshot of the current tick.
+     */
+    public InputSnapshot getSnapshot() {
+        return current;
+    }
+
+    /**
+     * Returns the oldest character typed and not yet read.
+     *
+     * @return Character typed, or '\0' if none.
+     */
+    public char getLastCharTyped() {
+        if (typedCount == 0)
+            return '\0';
+        char c = typed[typedHead];
+        typedHead = (typedHead + 1) % TYPED_CAPACITY;
+        typedCount--;
+        return c;
     }
 
 
     /**
-	 * Returns true if the provided key is currently pressed.
+	 * Returns true if the provided key is pressed in this tick.
 	 *
 	 * @param keyCode
 	 *            Key number to check.
 	 * @return Key state.
 	 */
 	public boolean isKeyDown(final int keyCode) {
-		return keys[keyCode];
+		return current.isDown(keyCode);
 	}
 
     // === PLAYER 1 CONTROLS (Existing functionality) ===
@@ -143,43 +212,76 @@ public final class InputManager implements KeyListener, MouseListener, MouseMoti
     }
 
 	/**
-	 * Changes the state of the key to pressed.
+	 * Queues a key press.
 	 *
 	 * @param key
 	 *            Key pressed.
 	 */
 	@Override
 	public void keyPressed(final KeyEvent key) {
-		if (key.getKeyCode() >= 0 && key.getKeyCode() < NUM_KEYS) {
-            keys[key.getKeyCode()] = true;
-            lastPressedKey = key.getKeyCode();
-        }
+		press(key.getKeyCode(), eventNanos(key.getWhen()));
+	}
+
+	/**
+	 * Queues a key press. AWT event thread only.
+	 *
+	 * @param keyCode
+	 *            Key pressed.
+	 * @param eventNanos
+	 *            When it was pressed, System.nanoTime() clock.
+	 */
+	void press(final int keyCode, final long eventNanos) {
+		if (keyCode >= 0 && keyCode < NUM_KEYS)
+			queue.offer(InputQueue.KEY_PRESSED, keyCode, 0, eventNanos);
 	}
 
 	/**
-	 * Changes the state of the key to not pressed.
+	 * Queues a key release.
 	 *
 	 * @param key
 	 *            Key released.
 	 */
 	@Override
 	public void keyReleased(final KeyEvent key) {
-		if (key.getKeyCode() >= 0 && key.getKeyCode() < NUM_KEYS)
-			keys[key.getKeyCode()] = false;
+		release(key.getKeyCode(), eventNanos(key.getWhen()));
 	}
 
 	/**
-	 * Does nothing.
+	 * Queues a key release. AWT event thread only.
+	 *
+	 * @param keyCode
+	 *            Key released.
+	 * @param eventNanos
+	 *            When it was released, System.nanoTime() clock.
+	 */
+	void release(final int keyCode, final long eventNanos) {
+		if (keyCode >= 0 && keyCode < NUM_KEYS)
+			queue.offer(InputQueue.KEY_RELEASED, keyCode, 0, eventNanos);
+	}
+
+	/**
+	 * Queues a typed character.
 	 *
 	 * @param key
 	 *            Key typed.
 	 */
 	@Override
 	public void keyTyped(final KeyEvent key) {
-        lastCharTyped = key.getKeyChar();
-        charTyped = true;
+        queue.offer(InputQueue.KEY_TYPED, key.getKeyChar(), 0, eventNanos(key.getWhen()));
+	}
+
+	/**
+	 * Moves an event time onto the System.nanoTime() clock.
+	 *
+	 * @param when
+	 *            When the OS saw the event, as given by InputEvent.getWhen().
+	 * @return The same instant, System.nanoTime() clock.
+	 */
+	private static long eventNanos(final long when) {
+		long delayMillis = Math.max(0, System.currentTimeMillis() - when);
+		return System.nanoTime() - delayMillis * 1_000_000L;
 	}
-    // Save and return the last pressed key
+    // Save and return the last pressed key, as of the last poll
     public int getLastPressedKey() {
         int temp = lastPressedKey;
         lastPressedKey = -1;
@@ -191,8 +293,8 @@ public final class InputManager implements KeyListener, MouseListener, MouseMoti
      * (Prevents unintended key carry-over between screens)
      */
     public void clearLastKey() {
-        lastCharTyped = '\0' ;
-        charTyped = false ;
+        typedHead = 0;
+        typedCount = 0;
     }
     // Create and return a project path/res/keyconfig.txt file object
     private File getKeyConfigFile() {
@@ -254,15 +356,14 @@ public final class InputManager implements KeyListener, MouseListener, MouseMoti
      * Resets all key states to not pressed.
      */
     public static void resetKeys() {
-        for (int i = 0; i < NUM_KEYS; i++) {
-            keys[i] = false;
-        }
+        instance.current.clearKeys();
+        instance.next.clearKeys();
     }
 
 
-    public int getMouseX() { return mouseX; } // add this function
+    public int getMouseX() { return current.getMouseX(); } // add this function
 
-    public int getMouseY() { return mouseY; } // add this function
+    public int getMouseY() { return current.getMouseY(); } // add this function
 
     public boolean isMouseClicked() { // add this function
         if (mouseClicked) {
@@ -279,17 +380,14 @@ public final class InputManager implements KeyListener, MouseListener, MouseMoti
 
     @Override
     public void mousePressed(final MouseEvent e) { // add this function
-        mousePressed = true;
-        mouseX = e.getX();
-        mouseY = e.getY();
+        moveMouse(e);
+        queue.offer(InputQueue.MOUSE_PRESSED, e.getX(), e.getY(), eventNanos(e.getWhen()));
     }
 
     @Override
     public void mouseReleased(final MouseEvent e) { // add this function
-        mousePressed = false;
-        mouseX = e.getX();
-        mouseY = e.getY();
-        mouseClicked = true;
+        moveMouse(e);
+        queue.offer(InputQueue.MOUSE_RELEASED, e.getX(), e.getY(), eventNanos(e.getWhen()));
     }
 
     @Override
@@ -305,17 +403,20 @@ public final class InputManager implements KeyListener, MouseListener, MouseMoti
 	/** Added mouse move/drag event to update mouse position right now */
 	@Override
 	public void mouseMoved(final MouseEvent e){
-		mouseX = e.getX();
-		mouseY = e.getY();
+		moveMouse(e);
 	}
 	@Override
 	public void mouseDragged(final MouseEvent e){
-		mouseX = e.getX();
-		mouseY = e.getY();
+		moveMouse(e);
+	}
+
+	/** Only the latest position matters, so moves bypass the queue. */
+	private void moveMouse(final MouseEvent e) {
+		mousePosition = ((long) e.getX() << 32) | (e.getY() & 0xFFFFFFFFL);
 	}
 
 	public boolean isMousePressed(){
-		return mousePressed;
+		return current.isMouseDown();
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,95 @@
+package engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-producer single-consumer queue of timestamped input events, from
+ * the AWT event thread to the game thread.
+ *
+ * Events are stored field by field in preallocated arrays, so neither side
+ * allocates. The producer publishes a slot by moving the tail with a
+ * release store after filling it; the consumer frees slots the same way
+ * with the head. Events are never dropped: if the game thread stops
+ * draining long enough to fill the queue, the producer waits for room.
+ */
+final class InputQueue {
+
+    /** Event types. */
+    static final int KEY_PRESSED = 0;
+    static final int KEY_RELEASED = 1;
+    static final int KEY_TYPED = 2;
+    static final int MOUSE_PRESSED = 3;
+    static final int MOUSE_RELEASED = 4;
+
+    /** Slots in the ring; a power of two. */
+    private static final int CAPACITY = 4096;
+    private static final int MASK = CAPACITY - 1;
+
+    /** Receives drained events. */
+    interface Handler {
+        /**
+         * @param type
+         *            One of the event types.
+         * @param a
+         *            Key code, typed character or mouse x.
+         * @param b
+         *            Mouse y, 0 for key events.
+         * @param nanos
+         *            When the event happened, System.nanoTime() clock.
+         */
+        void event(int type, int a, int b, long nanos);
+    }
+
+    private final int[] types = new int[CAPACITY];
+    private final int[] as = new int[CAPACITY];
+    private final int[] bs = new int[CAPACITY];
+    private final long[] times = new long[CAPACITY];
+
+    /** Next slot to read; written by the consumer only. */
+    private final AtomicLong head = new AtomicLong();
+    /** Next slot to write; written by the producer only. */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Appends an event. Producer thread only.
+     *
+     * @param type
+     *            One of the event types.
+     * @param a
+     *            Key code, typed character or mouse x.
+     * @param b
+     *            Mouse y, 0 for key events.
+     * @param nanos
+     *            When the event happened, System.nanoTime() clock.
+     */
+    void offer(final int type, final int a, final int b, final long nanos) {
+        long t = tail.get();
+        while (t - head.get() >= CAPACITY)
+            Thread.yield();
+        int slot = (int) (t & MASK);
+        types[slot] = type;
+        as[slot] = a;
+        bs[slot] = b;
+        times[slot] = nanos;
+        tail.lazySet(t + 1);
+    }
+
+    /**
+     * Hands every queued event to the handler, oldest first. Consumer
+     * thread only.
+     *
+     * @param handler
+     *            Receives the events.
+     * @return Events drained.
+     */
+    int drain(final Handler handler) {
+        long h = head.get();
+        long t = tail.get();
+        for (long i = h; i < t; i++) {
+            int slot = (int) (i & MASK);
+            handler.event(types[slot], as[slot], bs[slot], times[slot]);
+        }
+        head.lazySet(t);
+        return (int) (t - h);
+    }
+}
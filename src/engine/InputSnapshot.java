@@ -0,0 +1,118 @@
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * Input state of one game tick, built by {@link InputManager#poll()} from
+ * the events queued since the previous tick.
+ *
+ * Besides the keys held at the end of the tick, it keeps the edges: keys
+ * pressed or released during the tick. A tap shorter than a tick is thus
+ * both pressed and released, and still counts as down for that tick.
+ * InputManager reuses two snapshots alternately, so a snapshot does not
+ * change during the tick it belongs to but is overwritten two ticks later.
+ */
+public final class InputSnapshot {
+
+    private final boolean[] down;
+    private final boolean[] pressed;
+    private final boolean[] released;
+    int mouseX;
+    int mouseY;
+    boolean mouseDown;
+    long tick;
+
+    InputSnapshot(final int numKeys) {
+        down = new boolean[numKeys];
+        pressed = new boolean[numKeys];
+        released = new boolean[numKeys];
+    }
+
+    /**
+     * Starts the next tick from the state at the end of another one.
+     *
+     * @param previous
+     *            Snapshot of the previous tick.
+     */
+    void carryOver(final InputSnapshot previous) {
+        System.arraycopy(previous.down, 0, down, 0, down.length);
+        Arrays.fill(pressed, false);
+        Arrays.fill(released, false);
+        mouseX = previous.mouseX;
+        mouseY = previous.mouseY;
+        mouseDown = previous.mouseDown;
+        tick = previous.tick + 1;
+    }
+
+    /**
+     * Applies a key press.
+     *
+     * @param keyCode
+     *            Key pressed.
+     * @return Whether the key was up, i.e. this is not an auto-repeat.
+     */
+    boolean press(final int keyCode) {
+        boolean fresh = !down[keyCode];
+        down[keyCode] = true;
+        if (fresh) pressed[keyCode] = true;
+        return fresh;
+    }
+
+    void release(final int keyCode) {
+        if (!down[keyCode]) return;
+        down[keyCode] = false;
+        released[keyCode] = true;
+    }
+
+    void clearKeys() {
+        Arrays.fill(down, false);
+        Arrays.fill(pressed, false);
+        Arrays.fill(released, false);
+    }
+
+    /**
+     * @param keyCode
+     *            Key to check.
+     * @return Whether the key was held at some point during the tick.
+     */
+    public boolean isDown(final int keyCode) {
+        return down[keyCode] || pressed[keyCode];
+    }
+
+    /**
+     * @param keyCode
+     *            Key to check.
+     * @return Whether the key went down during the tick.
+     */
+    public boolean wasPressed(final int keyCode) {
+        return pressed[keyCode];
+    }
+
+    /**
+     * @param keyCode
+     *            Key to check.
+     * @return Whether the key went up during the tick.
+     */
+    public boolean wasReleased(final int keyCode) {
+        return released[keyCode];
+    }
+
+    public int getMouseX() {
+        return mouseX;
+    }
+
+    public int getMouseY() {
+        return mouseY;
+    }
+
+    public boolean isMouseDown() {
+        return mouseDown;
+    }
+
+    /**
+     * @return Number of the tick, counting polls since startup.
+     */
+    public long getTick() {
+        return tick;
+    }
+}
@@ -4,35 +4,132 @@ import java.io.*;
 import java.util.*;
 import java.util.logging.Logger;
 
+import engine.DrawManager.SpriteType;
+
 
 /**
  * Handles loading and managing item data from the CSV file. (item_db.csv)
  *
- * Supports both legacy CSV format (5 columns) and new format with cost (6 columns):
- * type,spriteType,dropTier,effectValue,effectDuration[,cost]
+ * Supports the legacy CSV format (5 columns), the format with cost (6 columns)
+ * and the format with drop weight (7 columns):
+ * type,spriteType,dropTier,effectValue,effectDuration[,cost[,dropWeight]]
+ *
+ * The database is loaded once and shared. Each item gets an integer id in CSV
+ * order, and its sprite and effect handler are resolved at load time so the
+ * spawn and pickup paths only do array reads. An instance never changes; a
+ * reload builds a new one and swaps it in (see ResourceWatcher).
  */
-public class ItemDB {
+public final class ItemDB {
     /** Path to the item database CSV file. */
     private static final String FILE_PATH = "res/item_db.csv";
+
+    /** Shared instance; replaced as a whole when item_db.csv is reloaded. */
+    private static volatile ItemDB instance;
+
     /** Map of item type name to its corresponding ItemData. */
-    private final Map<String, ItemData> itemMap = new HashMap<>();
+    private final Map<String, ItemData> itemMap;
+    /** Item data indexed by item id. */
+    private final ItemData[] items;
+    /** Sprite of each item, indexed by item id. */
+    private final SpriteType[] sprites;
+    /** Effect handler of each item, indexed by item id (null = no effect). */
+    private final ItemEffect.Handler[] handlers;
 
     /**
      * Constructor.
-     * Automatically loads the CSV file into memory.
+     * Resolves sprites and effect handlers for the loaded items.
+     *
+     * @param loaded
+     *            items in file order.
      */
-    public ItemDB() {
-        loadItemDB();
+    private ItemDB(final List<ItemData> loaded) {
+        Logger logger = Core.getLogger();
+
+        Map<String, ItemData> map = new HashMap<>();
+        this.items = loaded.toArray(new ItemData[0]);
+        this.sprites = new SpriteType[items.length];
+        this.handlers = new ItemEffect.Handler[items.length];
+
+        for (ItemData data : items) {
+            map.put(data.getType(), data);
+
+            try {
+                sprites[data.getId()] = SpriteType.valueOf(data.getSpriteType());
+            } catch (IllegalArgumentException e) {
+                sprites[data.getId()] = SpriteType.ItemScore; // fallback
+                logger.warning("[ItemDB] Unknown sprite type: " + data.getSpriteType() + ", using default.");
+            }
+
+            handlers[data.getId()] = ItemEffect.resolveHandler(data.getType());
+            if (handlers[data.getId()] == null)
+                logger.warning("[ItemDB] No ItemEffect for type " + data.getType());
+        }
+        this.itemMap = Collections.unmodifiableMap(map);
     }
 
     /**
-     * Loads all item data from the CSV file into the itemMap.
+     * Returns shared instance of ItemDB, loading it on first use.
+     *
+     * @return Shared instance of ItemDB.
+     */
+    public static ItemDB getInstance() {
+        ItemDB db = instance;
+        if (db != null) return db;
+
+        synchronized (ItemDB.class) {
+            if (instance == null) {
+                List<ItemData> loaded = Collections.emptyList();
+                try {
+                    loaded = loadItemDB();
+                } catch (FileNotFoundException e) {
+                    Core.getLogger().severe("Item DB file not found: " + FILE_PATH + " (" + e.getMessage() + ")");
+                } catch (IOException e) {
+                    Core.getLogger().severe("Failed to load item database from " + FILE_PATH + ": " + e.getMessage());
+                }
+                instance = new ItemDB(loaded);
+            }
+            return instance;
+        }
+    }
+
+    /**
+     * Loads a fresh ItemDB from the CSV file without installing it.
+     *
+     * @return new ItemDB.
+     * @throws IOException
+     *             if the file cannot be read or defines no items.
+     */
+    static ItemDB load() throws IOException {
+        List<ItemData> loaded = loadItemDB();
+        if (loaded.isEmpty())
+            throw new IOException("no items defined in " + FILE_PATH);
+        return new ItemDB(loaded);
+    }
+
+    /**
+     * Replaces the shared instance. Callers must make sure no item created
+     * from the previous instance is still in play.
+     *
+     * @param db
+     *            new ItemDB.
+     */
+    static void install(final ItemDB db) {
+        instance = db;
+    }
+
+    /**
+     * Loads all item data from the CSV file.
      * The CSV format is expected as:
-     * type, spriteType, dropTier, effectValue, effectDuration, cost
+     * type, spriteType, dropTier, effectValue, effectDuration, cost, dropWeight
      *
+     * @return items in file order; the list index is the item id.
+     * @throws IOException
+     *             if the file cannot be read.
      */
-    private void loadItemDB() {
+    private static List<ItemData> loadItemDB() throws IOException {
         Logger logger = Core.getLogger();
+        List<ItemData> result = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
 
         try (BufferedReader br = new BufferedReader(new FileReader(FILE_PATH))) {
             String line;
@@ -55,9 +152,15 @@ public class ItemDB {
                 String spriteType = tokens[1].trim();
                 String dropTier = tokens[2].trim();
 
+                if (!seen.add(type)) {
+                    logger.warning("[ItemDB] Duplicate item type " + type + ", skipping.");
+                    continue;
+                }
+
                 int effectValue = 0;
                 int effectDuration = 0;
                 int cost = 0;
+                double dropWeight = 1.0;
 
                 try {
                     effectValue = Integer.parseInt(tokens[3].trim());
@@ -85,16 +188,23 @@ public class ItemDB {
                     }
                 }
 
-                ItemData data = new ItemData(type, spriteType, dropTier, effectValue, effectDuration, cost);
-                itemMap.put(type, data);
+                // optional drop weight column (index 6)
+                if (tokens.length > 6 && !tokens[6].trim().isEmpty()) {
+                    try {
+                        dropWeight = Double.parseDouble(tokens[6].trim());
+                        if (dropWeight < 0 || Double.isNaN(dropWeight) || Double.isInfinite(dropWeight)) {
+                            logger.warning("[ItemDB] Invalid dropWeight for " + type + " -> '" + tokens[6] + "'. Using 1.");
+                            dropWeight = 1.0;
+                        }
+                    } catch (NumberFormatException e) {
+                        logger.warning("[ItemDB] Invalid dropWeight for " + type + " -> '" + tokens[6] + "'. Using 1.");
+                    }
+                }
+
+                result.add(new ItemData(result.size(), type, spriteType, dropTier, effectValue, effectDuration, cost, dropWeight));
             }
-        } catch (FileNotFoundException e) {
-            Logger l = Core.getLogger();
-            l.severe("Item DB file not found: " + FILE_PATH + " (" + e.getMessage() + ")");
-        } catch (IOException e) {
-            Logger l = Core.getLogger();
-            l.severe("Failed to load item database from " + FILE_PATH + ": " + e.getMessage());
         }
+        return result;
     }
 
     /**
@@ -108,12 +218,54 @@ public class ItemDB {
         return itemMap.get(type);
     }
 
+    /**
+     * Return the ItemData object for the given item id.
+     *
+     * @param id
+     *            id of the item.
+     * @return ItemData object, or null if the id is out of range.
+     */
+    public ItemData getItemData(int id) {
+        return (id >= 0 && id < items.length) ? items[id] : null;
+    }
+
+    /**
+     * Return the sprite resolved for the given item id.
+     *
+     * @param id
+     *            id of the item.
+     * @return sprite type, ItemScore if the id is out of range.
+     */
+    public SpriteType getSpriteType(int id) {
+        return (id >= 0 && id < sprites.length) ? sprites[id] : SpriteType.ItemScore;
+    }
+
+    /**
+     * Return the effect handler resolved for the given item id.
+     *
+     * @param id
+     *            id of the item.
+     * @return effect handler, or null if the item has no effect.
+     */
+    public ItemEffect.Handler getEffectHandler(int id) {
+        return (id >= 0 && id < handlers.length) ? handlers[id] : null;
+    }
+
+    /**
+     * Return the number of registered items.
+     *
+     * @return item count; valid ids are 0 to size() - 1.
+     */
+    public int size() {
+        return items.length;
+    }
+
     /**
      * Return a collection of all ItemData objects.
      *
-     * @return Collection of all items in the database.
+     * @return Collection of all items in the database, in id order.
      */
     public Collection<ItemData> getAllItems() {
-        return itemMap.values();
+        return Collections.unmodifiableList(Arrays.asList(items));
     }
 }
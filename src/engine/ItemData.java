@@ -4,6 +4,9 @@ package engine;
  * Represents the data for an item, including its type, sprite, tier, effect value, and duration.
  */
 public class ItemData {
+    /** Registry id assigned by ItemDB in CSV order (-1 if not registered). */
+    private final int id;
+
     /** Unique identifier for the item (e.g. "COIN", "HEAL", "SCORE"). */
     private final String type;
 
@@ -22,9 +25,14 @@ public class ItemData {
     /** cost in coins required to activate this item on pickup (0 = free). */
     private final int cost;
 
+    /** relative drop weight of the item inside its tier (0 = never dropped). */
+    private final double dropWeight;
+
     /**
      * Constructs an ItemData object.
      *
+     * @param id
+     *            registry id of the item.
      * @param type
      *            Unique identifier for the item.
      * @param spriteType
@@ -35,8 +43,14 @@ public class ItemData {
      *            numerical value of the item's effect.
      * @param effectDuration
      *            duration the effect remains active.
+     * @param cost
+     *            cost in coins required to activate the item.
+     * @param dropWeight
+     *            relative drop weight of the item inside its tier.
      */
-    public ItemData(String type, String spriteType, String dropTier, int effectValue, int effectDuration, int cost) {
+    public ItemData(int id, String type, String spriteType, String dropTier, int effectValue, int effectDuration, int cost, double dropWeight) {
+        // Index of the item inside the ItemDB registry.
+        this.id = id;
         // Unique identifier for the item (e.g "COIN", "HEAL", "SCORE").
         this.type = type;
         // The sprite type (e.g "ItemScore, ItemHeal", etc).
@@ -49,6 +63,14 @@ public class ItemData {
         this.effectDuration = effectDuration;
         // 0 = free
         this.cost = Math.max(0, cost);
+        // 1 = default weight, 0 = never dropped
+        this.dropWeight = Math.max(0.0, dropWeight);
+    }
+    /**
+     * unregistered constructor - sets id to -1.
+     */
+    public ItemData(String type, String spriteType, String dropTier, int effectValue, int effectDuration, int cost) {
+        this(-1, type, spriteType, dropTier, effectValue, effectDuration, cost, 1.0);
     }
     /**
      * default constructor (no cost) — sets cost to 0.
@@ -56,6 +78,13 @@ public class ItemData {
     public ItemData(String type, String spriteType, String dropTier, int effectValue, int effectDuration) {
         this(type, spriteType, dropTier, effectValue, effectDuration, 0);
     }
+    /**
+     * Getter for registry id.
+     *
+     * @return item id, or -1 if not registered.
+     */
+    public int getId() { return id; }
+
     /**
      * Getter for item type.
      *
@@ -93,4 +122,11 @@ public class ItemData {
 
     // Getter for item cost
     public int getCost() { return cost; }
+
+    /**
+     * Getter for the drop weight of the item inside its tier.
+     *
+     * @return drop weight.
+     */
+    public double getDropWeight() { return dropWeight; }
 }
@@ -12,6 +12,44 @@ public class ItemEffect {
         BULLETSPEEDUP
     }
 
+    /**
+     * Effect applied when an item is picked up.
+     * Resolved once per item type by ItemDB so pickups don't switch on strings.
+     */
+    @FunctionalInterface
+    public interface Handler {
+        /**
+         * @return true if the effect was applied, false otherwise (e.g. not enough coins).
+         */
+        boolean apply(GameState gameState, ItemData data);
+    }
+
+    /**
+     * Returns the effect handler for the given item type.
+     *
+     * @param type
+     *            item type from item_db.csv (e.g. "COIN").
+     * @return handler, or null if the type has no effect.
+     */
+    public static Handler resolveHandler(final String type) {
+        switch (type) {
+            case "COIN":
+                return (gameState, data) -> { applyCoinItem(gameState, data.getEffectValue()); return true; };
+            case "HEAL":
+                return (gameState, data) -> { applyHealItem(gameState, data.getEffectValue()); return true; };
+            case "SCORE":
+                return (gameState, data) -> { applyScoreItem(gameState, data.getEffectValue()); return true; };
+            case "TRIPLESHOT":
+                return (gameState, data) -> applyTripleShot(gameState, data.getEffectValue(), data.getEffectDuration(), data.getCost());
+            case "SCOREBOOST":
+                return (gameState, data) -> applyScoreBoost(gameState, data.getEffectValue(), data.getEffectDuration(), data.getCost());
+            case "BULLETSPEEDUP":
+                return (gameState, data) -> applyBulletSpeedUp(gameState, data.getEffectValue(), data.getEffectDuration(), data.getCost());
+            default:
+                return null;
+        }
+    }
+
     /*
      * When a player picks up a duration item,
      * attempt to spend the corresponding amount of coins. If the
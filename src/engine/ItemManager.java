@@ -1,6 +1,7 @@
 package engine;
 
 import java.util.Random;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import entity.EnemyShip;
 import entity.Item;
@@ -16,6 +17,9 @@ public final class ItemManager {
 
     /** Debug logger init */
     private final Logger logger;
+    /** Logged on every drop, limited to a few lines per second. */
+    private static final LogSite DROP_LOG =
+            new LogSite(Level.INFO, "[ItemManager]: created item {0} at ({1}, {2})", 5);
     private ItemManager() { logger = Core.getLogger(); }
 
     public static ItemManager getInstance() {
@@ -30,7 +34,7 @@ public final class ItemManager {
     private int pityCounter = 0;
 
     /** Item database loaded from CSV. */
-    private final ItemDB itemDB = new ItemDB();
+    private ItemDB itemDB = ItemDB.getInstance();
 
     /** -------------------------- ITEM DATA -------------------------- **/
 
@@ -48,77 +52,153 @@ public final class ItemManager {
 
     /** -------------------------- INIT -------------------------- **/
 
-    /** Total weight of all item tiers except NONE. */
-    private static final double ITEM_WEIGHT;
+    /** Pity boost gained per roll without a drop. */
+    private static final double PITY_STEP = 0.05;
+    /** Maximum pity boost (NONE weight is reduced by at most this ratio). */
+    private static final double MAX_PITY_BOOST = 0.5;
+    /** Number of distinct pity levels, one alias table each. */
+    private static final int PITY_LEVELS = (int) Math.round(MAX_PITY_BOOST / PITY_STEP) + 1;
 
-    static {
-        double sum = 0.0;
-        for (DropTier t : DropTier.values()) {
-            if (t != DropTier.NONE) sum += t.tierWeight;
-        }
-        ITEM_WEIGHT = sum;
-    }
-
-    /** -------------------------- MAIN -------------------------- **/
+    /** Outcome id returned by the drop tables when nothing drops. */
+    public static final int NO_DROP = -1;
 
     /**
-     * Determines and returns the item dropped by the given enemy.
-     *
-     * @param enemy
-     *            enemy ship that was defeated.
-     * @return dropped Item, or null if no item is dropped.
+     * Precompiled drop tables, one per pity level.
+     * Outcome 0 is NO_DROP, outcome i + 1 is the item with ItemDB id i and
+     * the last outcome is a roll that landed on a tier without items.
      */
-    public Item obtainDrop(final EnemyShip enemy) {
-        if (enemy == null) return null;
+    private AliasTable[] dropTables = buildDropTables(itemDB);
 
-        // Pity Boost
-        double pityBoost = Math.min(pityCounter * 0.05, 0.5);
-        double boostedNoneWeight = DropTier.NONE.tierWeight * (1.0 - pityBoost);
+    /** Observed count per outcome (index 0 = NO_DROP, last = empty tier). */
+    private long[] observedDrops = new long[itemDB.size() + 2];
+    /** Number of rolls made at each pity level, used to derive expected counts. */
+    private long[] rollsPerPityLevel = new long[PITY_LEVELS];
+    /** Total number of drop rolls. */
+    private long rollCount = 0;
 
-        // Roll Item
-        double dropRoll = itemRoll.nextDouble() * (ITEM_WEIGHT + boostedNoneWeight);
-        this.logger.info(String.format("[ItemManager]: DropRoll %.1f", dropRoll));
+    /**
+     * Builds the alias tables for every pity level.
+     * Each item gets its tier weight split by its dropWeight among the items of
+     * that tier. Tiers without droppable items get their own outcome, which
+     * drops nothing but resets pity, like the old "No items defined for
+     * tier" case.
+     */
+    private static AliasTable[] buildDropTables(final ItemDB itemDB) {
+        int itemCount = itemDB.size();
 
-        DropTier chosenTier = DropTier.NONE;
-        double acc = 0.0;
+        // Sum of item weights per tier.
+        double[] tierItemWeight = new double[DropTier.values().length];
+        for (int id = 0; id < itemCount; id++) {
+            DropTier tier = tierOf(itemDB.getItemData(id));
+            if (tier != null)
+                tierItemWeight[tier.ordinal()] += itemDB.getItemData(id).getDropWeight();
+        }
 
+        double[] base = new double[itemCount + 2];
+        double emptyTierWeight = 0.0;
         for (DropTier tier : DropTier.values()) {
-            double weight = tier.tierWeight;
-
-            if (tier == DropTier.NONE) {
-                weight = boostedNoneWeight;
+            if (tier != DropTier.NONE && tierItemWeight[tier.ordinal()] <= 0.0) {
+                emptyTierWeight += tier.tierWeight;
+                Core.getLogger().warning("[ItemManager]: No items defined for tier " + tier);
             }
+        }
+        for (int id = 0; id < itemCount; id++) {
+            ItemData data = itemDB.getItemData(id);
+            DropTier tier = tierOf(data);
+            if (tier != null && tierItemWeight[tier.ordinal()] > 0.0)
+                base[id + 1] = tier.tierWeight * data.getDropWeight() / tierItemWeight[tier.ordinal()];
+        }
+        base[itemCount + 1] = emptyTierWeight;
 
-            acc += weight;
+        AliasTable[] tables = new AliasTable[PITY_LEVELS];
+        for (int level = 0; level < PITY_LEVELS; level++) {
+            double[] weights = base.clone();
+            double pityBoost = Math.min(level * PITY_STEP, MAX_PITY_BOOST);
+            weights[0] = DropTier.NONE.tierWeight * (1.0 - pityBoost);
+            tables[level] = new AliasTable(weights);
+        }
+        return tables;
+    }
 
-            if (dropRoll < acc) {
-                chosenTier = tier;
-                break;
-            }
+    /**
+     * Returns the outcome probabilities of every pity level, for offline
+     * comparison of observed drops with item_db.csv.
+     *
+     * @param itemDB
+     *            Item database to build the tables from.
+     * @return [pity level][outcome], outcome 0 = NO_DROP, i + 1 = item id i.
+     */
+    static double[][] dropProbabilities(final ItemDB itemDB) {
+        AliasTable[] tables = buildDropTables(itemDB);
+        double[][] probabilities = new double[tables.length][itemDB.size() + 1];
+        for (int level = 0; level < tables.length; level++) {
+            for (int outcome = 0; outcome <= itemDB.size(); outcome++)
+                probabilities[level][outcome] = tables[level].getProbability(outcome);
+            // An empty tier drops nothing either.
+            probabilities[level][0] += tables[level].getProbability(itemDB.size() + 1);
         }
+        return probabilities;
+    }
+
+    /**
+     * Rebuilds the drop tables from the current ItemDB, after item_db.csv was
+     * reloaded. Drop statistics start over.
+     */
+    void reloadItemDB() {
+        logDropStats();
+        this.itemDB = ItemDB.getInstance();
+        this.dropTables = buildDropTables(itemDB);
+        this.observedDrops = new long[itemDB.size() + 2];
+        this.rollsPerPityLevel = new long[PITY_LEVELS];
+        this.rollCount = 0;
+    }
+
+    /**
+     * Returns the drop tier of an item, or null if it is not a droppable tier.
+     */
+    private static DropTier tierOf(final ItemData data) {
+        for (DropTier tier : DropTier.values())
+            if (tier != DropTier.NONE && tier.name().equalsIgnoreCase(data.getDropTier()))
+                return tier;
+        return null;
+    }
+
+    /** -------------------------- MAIN -------------------------- **/
+
+    /**
+     * Rolls the drop table for the current pity level and updates the pity counter.
+     *
+     * @return ItemDB id of the dropped item, or NO_DROP.
+     */
+    public int rollDrop() {
+        int level = Math.min(pityCounter, PITY_LEVELS - 1);
+        int outcome = dropTables[level].sample(itemRoll);
+
+        rollCount++;
+        rollsPerPityLevel[level]++;
+        observedDrops[outcome]++;
 
         // Calculate Pity
-        if (chosenTier == DropTier.NONE) {
+        if (outcome == 0) {
             pityCounter++;
-            logger.info(String.format("[ItemManager]: Tier=NONE (pity=%d)", pityCounter));
-            return null;
+            return NO_DROP;
         }
-
         pityCounter = 0;
+        return outcome > itemDB.size() ? NO_DROP : outcome - 1;
+    }
 
-        // Load item list from CSV by DropTier
-        java.util.List<ItemData> candidates = new java.util.ArrayList<>();
-        for (ItemData data : itemDB.getAllItems()) {
-            if (data.getDropTier().equalsIgnoreCase(chosenTier.name()))
-                candidates.add(data);
-        }
-
-        if (candidates.isEmpty()) {
-            logger.warning("[ItemManager]: No items defined for tier " + chosenTier);
-            return null;
-        }
+    /**
+     * Determines and returns the item dropped by the given enemy.
+     *
+     * @param enemy
+     *            enemy ship that was defeated.
+     * @return dropped Item, or null if no item is dropped.
+     */
+    public Item obtainDrop(final EnemyShip enemy) {
+        if (enemy == null) return null;
 
-        ItemData chosenData = candidates.get(itemRoll.nextInt(candidates.size()));
+        int itemId = rollDrop();
+        if (itemId == NO_DROP) return null;
 
         // get spawn position / enemy death position
         int centerX = enemy.getPositionX() + enemy.getWidth() / 2;
@@ -126,10 +206,67 @@ public final class ItemManager {
 
         // Pass ItemData directly to ItemPool
         int itemSpeed = 2;
-        Item drop = ItemPool.getItem(chosenData, centerX, centerY, itemSpeed);
+        Item drop = ItemPool.getItem(itemDB.getItemData(itemId), centerX, centerY, itemSpeed);
 
-        this.logger.info("[ItemManager]: created item " + drop.getType() + " at (" + centerX + ", " + centerY + ")");
+        DROP_LOG.log(drop.getType(), centerX, centerY);
 
         return drop;
     }
+
+    /** -------------------------- STATS -------------------------- **/
+
+    /**
+     * @return current pity counter, the rolls since something last reset it.
+     */
+    public int getPityCounter() {
+        return pityCounter;
+    }
+
+    /**
+     * @return total number of drop rolls since start.
+     */
+    public long getRollCount() {
+        return rollCount;
+    }
+
+    /**
+     * @param itemId
+     *            ItemDB id, or NO_DROP.
+     * @return number of times the outcome was rolled.
+     */
+    public long getObservedCount(final int itemId) {
+        if (itemId == NO_DROP)
+            return observedDrops[0] + observedDrops[itemDB.size() + 1];
+        return observedDrops[itemId + 1];
+    }
+
+    /**
+     * @param itemId
+     *            ItemDB id, or NO_DROP.
+     * @return expected number of times the outcome should have been rolled.
+     */
+    public double getExpectedCount(final int itemId) {
+        double expected = 0.0;
+        for (int level = 0; level < PITY_LEVELS; level++) {
+            double probability = dropTables[level].getProbability(itemId + 1);
+            if (itemId == NO_DROP)
+                probability += dropTables[level].getProbability(itemDB.size() + 1);
+            expected += rollsPerPityLevel[level] * probability;
+        }
+        return expected;
+    }
+
+    /**
+     * Logs observed vs expected drop counts for every outcome.
+     */
+    public void logDropStats() {
+        if (rollCount == 0) return;
+        StringBuilder sb = new StringBuilder("[ItemManager]: Drop stats over ").append(rollCount).append(" rolls:");
+        for (int id = NO_DROP; id < itemDB.size(); id++) {
+            String name = (id == NO_DROP) ? "NONE" : itemDB.getItemData(id).getType();
+            sb.append(' ').append(name).append('=').append(getObservedCount(id))
+                    .append('/').append(Math.round(getExpectedCount(id)));
+        }
+        logger.info(sb.toString());
+    }
 }
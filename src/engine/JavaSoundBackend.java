@@ -0,0 +1,50 @@
+package engine;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * Audio backend writing to a JavaSound SourceDataLine.
+ */
+public final class JavaSoundBackend implements AudioBackend {
+
+    /** Output line, null while closed. */
+    private SourceDataLine line;
+
+    @Override
+    public void open(final AudioFormat format, final int bufferFrames) throws LineUnavailableException {
+        try {
+            DataLine.Info info = new DataLine.Info(SourceDataLine.class, format);
+            line = (SourceDataLine) AudioSystem.getLine(info);
+            line.open(format, bufferFrames * format.getFrameSize());
+            line.start();
+        } catch (IllegalArgumentException e) {
+            // No line matching the format; same meaning as an unavailable line.
+            throw new LineUnavailableException(e.getMessage());
+        }
+    }
+
+    @Override
+    public void write(final byte[] data, final int length) {
+        if (line == null || !line.isOpen())
+            throw new IllegalStateException("Audio line is closed.");
+        line.write(data, 0, length);
+    }
+
+    @Override
+    public void close() {
+        if (line != null) {
+            line.stop();
+            line.close();
+            line = null;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "javasound";
+    }
+}
@@ -0,0 +1,442 @@
+package engine;
+
+import java.awt.Color;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Compiled, memory-mapped form of level.csv.
+ *
+ * The CSV is validated once and written to a binary pack: a stage index
+ * followed by one record per stage (settings + change list with colors
+ * already resolved to ARGB). The pack stores the size, modification time and
+ * SHA-256 of the CSV it was built from, so it is only rebuilt when the CSV
+ * changes. Stages are decoded on first access.
+ *
+ * Pack layout (big-endian):
+ * <pre>
+ * int magic, int version, long csvSize, long csvModified, byte[32] csvHash,
+ * int stageCount, int[stageCount + 1] stageOffsets,
+ * per stage: int width, int height, int baseSpeed, int shootingFrequency,
+ *            int changeCount,
+ *            per change: int x, int y, int hp, int multiplier, byte hasColor, int argb
+ * </pre>
+ */
+public final class LevelPack {
+
+    /** "LVPK". */
+    private static final int MAGIC = 0x4C56504B;
+    /** Bump when the layout changes; older packs are rebuilt. */
+    private static final int VERSION = 1;
+    /** Length of the SHA-256 digest. */
+    private static final int HASH_LENGTH = 32;
+    /** Offset of the stage count in the header. */
+    private static final int HEADER_LENGTH = 4 + 4 + 8 + 8 + HASH_LENGTH;
+
+    private static final Logger LOGGER = Core.getLogger();
+
+    /** Pack contents, mapped or on the heap. */
+    private final ByteBuffer buffer;
+    /** Number of stages in the pack. */
+    private final int stageCount;
+    /** Stages decoded so far. */
+    private final GameSettings[] decoded;
+
+    /**
+     * Thrown when level.csv does not pass validation.
+     */
+    public static final class LevelFormatException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        public LevelFormatException(final int line, final String message) {
+            super("level.csv line " + line + ": " + message);
+        }
+    }
+
+    private LevelPack(final ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_LENGTH + 4 || buffer.getInt(0) != MAGIC)
+            throw new IOException("Not a level pack");
+        this.stageCount = buffer.getInt(HEADER_LENGTH);
+        this.decoded = new GameSettings[stageCount];
+    }
+
+    /**
+     * Opens the pack for the given CSV, compiling it first if the pack is
+     * missing, outdated or was built from different CSV contents. If the CSV
+     * fails validation but an older pack exists, the older pack is kept.
+     *
+     * @param csvPath
+     *            Path of level.csv.
+     * @param packPath
+     *            Path of the compiled pack.
+     * @return Opened pack.
+     * @throws IOException
+     *             If neither the CSV nor an existing pack can be read.
+     * @throws LevelFormatException
+     *             If the CSV is invalid and there is no pack to fall back on.
+     */
+    public static LevelPack load(final Path csvPath, final Path packPath)
+            throws IOException, LevelFormatException {
+        // Only the header is read here: the pack must not be mapped while it may be replaced.
+        ByteBuffer header = null;
+        if (Files.exists(packPath)) {
+            try {
+                header = readHeader(packPath);
+            } catch (IOException e) {
+                LOGGER.warning("Ignoring unreadable level pack " + packPath + ": " + e.getMessage());
+            }
+        }
+
+        if (!Files.exists(csvPath)) {
+            if (header != null) return map(packPath);
+            throw new IOException("There is no such file named " + csvPath);
+        }
+
+        long csvSize = Files.size(csvPath);
+        long csvModified = Files.getLastModifiedTime(csvPath).toMillis();
+        if (header != null && header.getInt(4) == VERSION
+                && header.getLong(8) == csvSize
+                && header.getLong(16) == csvModified) {
+            return map(packPath);
+        }
+
+        byte[] csv = Files.readAllBytes(csvPath);
+        byte[] hash = sha256(csv);
+        if (header != null && header.getInt(4) == VERSION && hasHash(header, hash)) {
+            return map(packPath);
+        }
+
+        try {
+            compile(csv, csvModified, hash, packPath);
+        } catch (LevelFormatException e) {
+            if (header == null) throw e;
+            LOGGER.warning(e.getMessage() + " - keeping previous level pack.");
+            return map(packPath);
+        }
+        LOGGER.info("Compiled " + csvPath + " into " + packPath);
+        return map(packPath);
+    }
+
+    /**
+     * Compiles the CSV unconditionally and returns the new pack. Unlike
+     * {@link #load(Path, Path)} there is no fallback: an invalid CSV is
+     * reported to the caller, and the existing pack file is left untouched.
+     *
+     * The new pack is kept in a heap buffer, as the pack file may still be
+     * mapped by the pack in use. On systems that cannot replace a mapped
+     * file (Windows), the pack file is then left outdated and is rebuilt
+     * at the next start.
+     *
+     * @param csvPath
+     *            Path of level.csv.
+     * @param packPath
+     *            Path of the compiled pack.
+     * @return Newly compiled pack.
+     * @throws IOException
+     *             If the CSV cannot be read.
+     * @throws LevelFormatException
+     *             If the CSV is invalid.
+     */
+    public static LevelPack rebuild(final Path csvPath, final Path packPath)
+            throws IOException, LevelFormatException {
+        byte[] csv = Files.readAllBytes(csvPath);
+        byte[] pack = encode(csv, Files.getLastModifiedTime(csvPath).toMillis(), sha256(csv));
+        try {
+            write(pack, packPath);
+        } catch (IOException e) {
+            LOGGER.warning("Could not replace " + packPath + " (" + e + "), it will be rebuilt at the next start.");
+        }
+        return new LevelPack(ByteBuffer.wrap(pack));
+    }
+
+    /**
+     * Validates level.csv and writes it as a binary pack.
+     *
+     * @param csv
+     *            Raw CSV bytes.
+     * @param csvModified
+     *            Modification time of the CSV, stored for the quick up-to-date check.
+     * @param hash
+     *            SHA-256 of the CSV bytes.
+     * @param packPath
+     *            Destination of the pack; written atomically.
+     * @throws IOException
+     *             If the pack cannot be written.
+     * @throws LevelFormatException
+     *             If the CSV is invalid.
+     */
+    public static void compile(final byte[] csv, final long csvModified, final byte[] hash,
+                               final Path packPath) throws IOException, LevelFormatException {
+        write(encode(csv, csvModified, hash), packPath);
+    }
+
+    /**
+     * Validates level.csv and encodes it in the pack layout.
+     *
+     * @return Pack contents.
+     */
+    private static byte[] encode(final byte[] csv, final long csvModified, final byte[] hash)
+            throws LevelFormatException {
+        List<int[]> stages = parse(new String(csv, StandardCharsets.UTF_8));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(csv.length);
+            out.writeLong(csvModified);
+            out.write(hash);
+            out.writeInt(stages.size());
+
+            int offset = HEADER_LENGTH + 4 + 4 * (stages.size() + 1);
+            for (int[] stage : stages) {
+                out.writeInt(offset);
+                offset += recordLength(stage);
+            }
+            out.writeInt(offset);
+
+            for (int[] stage : stages) {
+                for (int i = 0; i < 5; i++)
+                    out.writeInt(stage[i]);
+                for (int c = 0; c < stage[4]; c++) {
+                    int base = 5 + c * 6;
+                    out.writeInt(stage[base]);
+                    out.writeInt(stage[base + 1]);
+                    out.writeInt(stage[base + 2]);
+                    out.writeInt(stage[base + 3]);
+                    out.writeByte(stage[base + 4]);
+                    out.writeInt(stage[base + 5]);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // in-memory stream
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes pack contents to the pack path atomically.
+     */
+    private static void write(final byte[] pack, final Path packPath) throws IOException {
+        Path parent = packPath.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(parent, "level", ".tmp");
+        try {
+            Files.write(tmp, pack);
+            Files.move(tmp, packPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+    }
+
+    /**
+     * Parses and validates level.csv.
+     *
+     * @return One flat int record per stage: width, height, baseSpeed,
+     *         shootingFrequency, changeCount, then 6 ints per change.
+     */
+    static List<int[]> parse(final String raw) throws LevelFormatException {
+        List<int[]> stages = new ArrayList<>();
+        String[] lines = raw.replace("\uFEFF", "").split("\r?\n", -1);
+
+        int[] current = null;
+        int changes = 0;
+        for (int n = 0; n < lines.length; n++) {
+            int lineNo = n + 1;
+            String line = lines[n];
+            int comment = line.indexOf("//");
+            if (comment >= 0) line = line.substring(0, comment);
+
+            // A line may hold several stage separators and data around them.
+            String[] pieces = line.split("&", -1);
+            for (int p = 0; p < pieces.length; p++) {
+                if (p > 0) {
+                    if (current != null) stages.add(Arrays.copyOf(current, 5 + changes * 6));
+                    current = null;
+                    changes = 0;
+                }
+                String piece = pieces[p].trim();
+                if (piece.isEmpty()) continue;
+
+                String[] parts = piece.split(",");
+                if (current == null) {
+                    if (parts.length < 4)
+                        throw new LevelFormatException(lineNo, "stage header needs 4 values, got " + parts.length);
+                    current = new int[5 + 6 * 16];
+                    for (int i = 0; i < 4; i++)
+                        current[i] = parseInt(parts[i], lineNo);
+                    if (current[0] <= 0 || current[1] <= 0)
+                        throw new LevelFormatException(lineNo, "formation size must be positive");
+                    if (current[2] < 0 || current[3] <= 0)
+                        throw new LevelFormatException(lineNo, "speed must be >= 0 and shooting frequency > 0");
+                    continue;
+                }
+
+                if (parts.length < 4)
+                    throw new LevelFormatException(lineNo, "enemy change needs at least 4 values, got " + parts.length);
+                int x = parseInt(parts[0], lineNo);
+                int y = parseInt(parts[1], lineNo);
+                if (x < 0 || x >= current[0] || y < 0 || y >= current[1])
+                    throw new LevelFormatException(lineNo, "enemy (" + x + "," + y + ") is outside the "
+                            + current[0] + "x" + current[1] + " formation");
+                int hp = parseInt(parts[2], lineNo);
+                int multiplier = parseInt(parts[3], lineNo);
+                if (hp < 0 || multiplier < 0)
+                    throw new LevelFormatException(lineNo, "hp and reward ratio must be >= 0");
+
+                int hasColor = 0;
+                int argb = 0;
+                if (parts.length >= 5 && !parts[4].trim().isEmpty()) {
+                    try {
+                        argb = GameSettings.hexToColor(parts[4].trim()).getRGB();
+                        hasColor = 1;
+                    } catch (RuntimeException e) {
+                        throw new LevelFormatException(lineNo, "invalid color '" + parts[4].trim() + "'");
+                    }
+                }
+
+                int base = 5 + changes * 6;
+                if (base + 6 > current.length)
+                    current = Arrays.copyOf(current, current.length * 2);
+                current[base] = x;
+                current[base + 1] = y;
+                current[base + 2] = hp;
+                current[base + 3] = multiplier;
+                current[base + 4] = hasColor;
+                current[base + 5] = argb;
+                current[4] = ++changes;
+            }
+        }
+        if (current != null) stages.add(Arrays.copyOf(current, 5 + changes * 6));
+
+        if (stages.isEmpty())
+            throw new LevelFormatException(lines.length, "there is no data in level.csv file");
+        return stages;
+    }
+
+    private static int parseInt(final String token, final int lineNo) throws LevelFormatException {
+        try {
+            return Integer.parseInt(token.trim());
+        } catch (NumberFormatException e) {
+            throw new LevelFormatException(lineNo, "'" + token.trim() + "' is not a number");
+        }
+    }
+
+    private static int recordLength(final int[] stage) {
+        return 5 * 4 + stage[4] * (5 * 4 + 1);
+    }
+
+    /**
+     * @return Header and stage count of a pack, or an exception if the file
+     *         is not a pack.
+     */
+    private static ByteBuffer readHeader(final Path packPath) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH + 4);
+        try (FileChannel channel = FileChannel.open(packPath, StandardOpenOption.READ)) {
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // keep reading
+            }
+        }
+        if (header.hasRemaining() || header.getInt(0) != MAGIC)
+            throw new IOException("Not a level pack");
+        return header;
+    }
+
+    private static LevelPack map(final Path packPath) throws IOException {
+        try (FileChannel channel = FileChannel.open(packPath, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new LevelPack(mapped);
+        }
+    }
+
+    private static byte[] sha256(final byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static boolean hasHash(final ByteBuffer header, final byte[] hash) {
+        for (int i = 0; i < HASH_LENGTH; i++)
+            if (header.get(24 + i) != hash[i]) return false;
+        return true;
+    }
+
+    /**
+     * @return Number of stages in the pack.
+     */
+    public int getStageCount() {
+        return stageCount;
+    }
+
+    /**
+     * Returns the settings of a stage, decoding it on first access.
+     *
+     * @param index
+     *            Zero-based stage index.
+     * @return Stage settings.
+     */
+    public synchronized GameSettings getStage(final int index) {
+        GameSettings settings = decoded[index];
+        if (settings != null) return settings;
+
+        int pos = buffer.getInt(HEADER_LENGTH + 4 + 4 * index);
+        int width = buffer.getInt(pos);
+        int height = buffer.getInt(pos + 4);
+        int baseSpeed = buffer.getInt(pos + 8);
+        int shootingFrequency = buffer.getInt(pos + 12);
+        int changeCount = buffer.getInt(pos + 16);
+        pos += 20;
+
+        List<GameSettings.ChangeData> changes = new ArrayList<>(changeCount);
+        for (int c = 0; c < changeCount; c++) {
+            int x = buffer.getInt(pos);
+            int y = buffer.getInt(pos + 4);
+            int hp = buffer.getInt(pos + 8);
+            int multiplier = buffer.getInt(pos + 12);
+            Color color = buffer.get(pos + 16) != 0 ? new Color(buffer.getInt(pos + 17), true) : null;
+            changes.add(new GameSettings.ChangeData(x, y, hp, multiplier, color));
+            pos += 21;
+        }
+
+        settings = new GameSettings(width, height, baseSpeed, shootingFrequency, changes);
+        decoded[index] = settings;
+        return settings;
+    }
+
+    /**
+     * @return Read-only list view whose elements are decoded on access.
+     */
+    public List<GameSettings> asList() {
+        return new AbstractList<GameSettings>() {
+            @Override
+            public GameSettings get(final int index) {
+                return getStage(index);
+            }
+
+            @Override
+            public int size() {
+                return stageCount;
+            }
+        };
+    }
+}
@@ -0,0 +1,97 @@
+package engine;
+
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * A rate-limited log statement for code that runs every frame.
+ *
+ * The message is a java.text.MessageFormat pattern; it is only formatted by
+ * the handler, and nothing is allocated unless the level is enabled and the
+ * site is within its rate. Messages over the rate are counted and the count
+ * is added to the next message that gets through. The counters are not
+ * synchronized: with several threads on one site the limit is approximate.
+ */
+public final class LogSite {
+
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+
+    private final Level level;
+    private final String pattern;
+    private final int maxPerSecond;
+
+    /** Start of the current one-second window. */
+    private long windowStart;
+    /** Messages logged in the current window. */
+    private int logged;
+    /** Messages suppressed since the last one logged. */
+    private int suppressed;
+
+    /**
+     * @param level
+     *            Level of the messages.
+     * @param pattern
+     *            MessageFormat pattern, e.g. "Created item {0} at ({1}, {2})".
+     * @param maxPerSecond
+     *            Maximum messages per second from this site.
+     */
+    public LogSite(final Level level, final String pattern, final int maxPerSecond) {
+        this.level = level;
+        this.pattern = pattern;
+        this.maxPerSecond = maxPerSecond;
+    }
+
+    /** Logs the message without parameters. */
+    public void log() {
+        if (allow()) emit(null);
+    }
+
+    /** Logs the message with one parameter. */
+    public void log(final Object arg0) {
+        if (allow()) emit(new Object[] {arg0});
+    }
+
+    /** Logs the message with two parameters. */
+    public void log(final Object arg0, final Object arg1) {
+        if (allow()) emit(new Object[] {arg0, arg1});
+    }
+
+    /** Logs the message with an object and two int parameters, boxed only if logged. */
+    public void log(final Object arg0, final int arg1, final int arg2) {
+        if (allow()) emit(new Object[] {arg0, arg1, arg2});
+    }
+
+    /**
+     * Checks the level and the rate limit, counting the message if it is
+     * suppressed.
+     */
+    private boolean allow() {
+        if (!Core.getLogger().isLoggable(level)) return false;
+
+        long now = System.nanoTime();
+        if (now - windowStart >= WINDOW_NANOS) {
+            windowStart = now;
+            logged = 0;
+        }
+        if (logged >= maxPerSecond) {
+            suppressed++;
+            return false;
+        }
+        logged++;
+        return true;
+    }
+
+    private void emit(final Object[] params) {
+        Logger logger = Core.getLogger();
+        String message = pattern;
+        if (suppressed > 0) {
+            message = pattern + " (+" + suppressed + " suppressed)";
+            suppressed = 0;
+        }
+        LogRecord record = new LogRecord(level, message);
+        record.setParameters(params);
+        record.setLoggerName(logger.getName());
+        logger.log(record);
+    }
+}
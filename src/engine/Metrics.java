@@ -0,0 +1,397 @@
+package engine;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters, gauges and histograms of one play session, exposed over JMX for
+ * the local monitoring agent (see {@link MetricsMXBean}).
+ *
+ * Updates go to LongAdders and fixed bucket arrays, so the hot path neither
+ * allocates nor contends. Each session gets its own registry, registered as
+ * invaders:type=Metrics,session=&lt;tag&gt;; starting a session replaces the
+ * previous one, so repeated headless runs in one JVM do not pile up beans.
+ * Until the first session starts, updates go to a "startup" registry.
+ */
+public final class Metrics implements MetricsMXBean {
+
+    /** Frame time bucket bounds, in nanoseconds. */
+    private static final long[] FRAME_BOUNDS = millis(1, 2, 4, 8, 12, 16, 20, 25, 33, 50, 100, 250);
+    /** Collision pass bucket bounds, in nanoseconds. */
+    private static final long[] COLLISION_BOUNDS = {25_000, 50_000, 100_000, 250_000, 500_000,
+            1_000_000, 2_000_000, 5_000_000, 10_000_000};
+    /** Input latency bucket bounds, in nanoseconds. */
+    private static final long[] LATENCY_BOUNDS = millis(1, 2, 4, 8, 16, 25, 33, 50, 75, 100, 150, 250);
+
+    /** Registry of the current session. */
+    private static volatile Metrics instance;
+
+    /** Fixed-bucket histogram of nanosecond durations. */
+    private static final class Histogram {
+        private final long[] bounds;
+        private final LongAdder[] buckets;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        Histogram(final long[] bounds) {
+            this.bounds = bounds;
+            this.buckets = new LongAdder[bounds.length + 1];
+            for (int i = 0; i < buckets.length; i++)
+                buckets[i] = new LongAdder();
+        }
+
+        void record(final long nanos) {
+            int bucket = 0;
+            while (bucket < bounds.length && nanos > bounds[bucket]) bucket++;
+            buckets[bucket].increment();
+            count.increment();
+            sum.add(nanos);
+            max.accumulate(nanos);
+        }
+
+        long[] snapshot() {
+            long[] counts = new long[buckets.length];
+            for (int i = 0; i < counts.length; i++)
+                counts[i] = buckets[i].sum();
+            return counts;
+        }
+
+        double meanMillis() {
+            long n = count.sum();
+            return n == 0 ? 0.0 : sum.sum() / 1e6 / n;
+        }
+
+        double percentileMillis(final double quantile) {
+            long[] counts = snapshot();
+            long total = 0;
+            for (long c : counts) total += c;
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && seen > 0)
+                    return Math.min(i < bounds.length ? bounds[i] : Long.MAX_VALUE, max.get()) / 1e6;
+            }
+            return 0.0;
+        }
+
+        double[] boundsMillis() {
+            double[] result = new double[bounds.length];
+            for (int i = 0; i < bounds.length; i++)
+                result[i] = bounds[i] / 1e6;
+            return result;
+        }
+    }
+
+    private final String session;
+    private final ObjectName name;
+
+    private final LongAdder bulletsFired = new LongAdder();
+    private final LongAdder enemiesKilled = new LongAdder();
+    private final LongAdder poolHits = new LongAdder();
+    private final LongAdder poolMisses = new LongAdder();
+    private final LongAdder soundsPlayed = new LongAdder();
+    private final LongAdder filesWritten = new LongAdder();
+    private volatile int liveEntities;
+    private final Histogram frameTime = new Histogram(FRAME_BOUNDS);
+    private final Histogram collisionTime = new Histogram(COLLISION_BOUNDS);
+    private final Histogram inputToSimulation = new Histogram(LATENCY_BOUNDS);
+    private final Histogram inputToPresent = new Histogram(LATENCY_BOUNDS);
+
+    private Metrics(final String session) throws JMException {
+        this.session = session;
+        this.name = new ObjectName("invaders:type=Metrics,session="
+                + (session.matches("[\\w.-]+") ? session : ObjectName.quote(session)));
+    }
+
+    /**
+     * Returns the registry of the current session.
+     *
+     * @return Current registry.
+     */
+    public static Metrics getInstance() {
+        Metrics metrics = instance;
+        return metrics != null ? metrics : startup();
+    }
+
+    private static synchronized Metrics startup() {
+        return instance != null ? instance : startSession("startup");
+    }
+
+    /**
+     * Starts a new session: registers a fresh registry under the tag and
+     * unregisters the previous one.
+     *
+     * @param tag
+     *            Session tag, e.g. "game-3" or a soak run id.
+     * @return The new registry.
+     */
+    public static synchronized Metrics startSession(final String tag) {
+        Logger logger = Core.getLogger();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Metrics previous = instance;
+        Metrics metrics;
+        try {
+            metrics = new Metrics(tag);
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Invalid metrics session tag " + tag, e);
+        }
+        try {
+            if (previous != null && server.isRegistered(previous.name))
+                server.unregisterMBean(previous.name);
+            if (!server.isRegistered(metrics.name))
+                server.registerMBean(metrics, metrics.name);
+        } catch (JMException e) {
+            logger.warning("Could not register metrics " + metrics.name + ": " + e.getMessage());
+        }
+        instance = metrics;
+        return metrics;
+    }
+
+    private static long[] millis(final long... values) {
+        long[] nanos = new long[values.length];
+        for (int i = 0; i < values.length; i++)
+            nanos[i] = values[i] * 1_000_000L;
+        return nanos;
+    }
+
+    /** Counts a bullet fired by the player. */
+    public void bulletFired() {
+        bulletsFired.increment();
+    }
+
+    /** Counts an enemy ship destroyed. */
+    public void enemyKilled() {
+        enemiesKilled.increment();
+    }
+
+    /** Counts an object served from a pool. */
+    public void poolHit() {
+        poolHits.increment();
+    }
+
+    /** Counts an object created because its pool was empty. */
+    public void poolMiss() {
+        poolMisses.increment();
+    }
+
+    /** Counts a sound requested from SoundManager. */
+    public void soundPlayed() {
+        soundsPlayed.increment();
+    }
+
+    /** Counts a file written to disk. */
+    public void fileWritten() {
+        filesWritten.increment();
+    }
+
+    /**
+     * Records one frame.
+     *
+     * @param nanos
+     *            Time spent updating and drawing it.
+     * @param entities
+     *            Ships, bullets and items on screen.
+     */
+    public void recordFrame(final long nanos, final int entities) {
+        frameTime.record(nanos);
+        liveEntities = entities;
+    }
+
+    /**
+     * Records one pass of the collision checks.
+     *
+     * @param nanos
+     *            Time it took.
+     */
+    public void recordCollisions(final long nanos) {
+        collisionTime.record(nanos);
+    }
+
+    /**
+     * Records the time from a key press to the tick that acted on it.
+     *
+     * @param nanos
+     *            Latency.
+     */
+    public void recordInputToSimulation(final long nanos) {
+        inputToSimulation.record(nanos);
+    }
+
+    /**
+     * Records the time from a key press to the first frame shown after it
+     * was acted on.
+     *
+     * @param nanos
+     *            Latency.
+     */
+    public void recordInputToPresent(final long nanos) {
+        inputToPresent.record(nanos);
+    }
+
+    @Override
+    public String getSession() {
+        return session;
+    }
+
+    @Override
+    public long getBulletsFired() {
+        return bulletsFired.sum();
+    }
+
+    @Override
+    public long getEnemiesKilled() {
+        return enemiesKilled.sum();
+    }
+
+    @Override
+    public long getPoolHits() {
+        return poolHits.sum();
+    }
+
+    @Override
+    public long getPoolMisses() {
+        return poolMisses.sum();
+    }
+
+    @Override
+    public long getSoundsPlayed() {
+        return soundsPlayed.sum();
+    }
+
+    @Override
+    public long getFilesWritten() {
+        return filesWritten.sum();
+    }
+
+    @Override
+    public int getLiveEntities() {
+        return liveEntities;
+    }
+
+    @Override
+    public long getHeapUsedBytes() {
+        return heap().getUsed();
+    }
+
+    @Override
+    public long getHeapMaxBytes() {
+        return heap().getMax();
+    }
+
+    private static MemoryUsage heap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+    }
+
+    @Override
+    public long getFrameCount() {
+        return frameTime.count.sum();
+    }
+
+    @Override
+    public double getFrameTimeMeanMillis() {
+        return frameTime.meanMillis();
+    }
+
+    @Override
+    public double getFrameTimeP50Millis() {
+        return frameTime.percentileMillis(0.50);
+    }
+
+    @Override
+    public double getFrameTimeP99Millis() {
+        return frameTime.percentileMillis(0.99);
+    }
+
+    @Override
+    public double getFrameTimeMaxMillis() {
+        return frameTime.max.get() / 1e6;
+    }
+
+    @Override
+    public double[] getFrameTimeBoundsMillis() {
+        return frameTime.boundsMillis();
+    }
+
+    @Override
+    public long[] getFrameTimeBuckets() {
+        return frameTime.snapshot();
+    }
+
+    @Override
+    public long getCollisionPassCount() {
+        return collisionTime.count.sum();
+    }
+
+    @Override
+    public double getCollisionTimeMeanMillis() {
+        return collisionTime.meanMillis();
+    }
+
+    @Override
+    public double getCollisionTimeP99Millis() {
+        return collisionTime.percentileMillis(0.99);
+    }
+
+    @Override
+    public double getCollisionTimeMaxMillis() {
+        return collisionTime.max.get() / 1e6;
+    }
+
+    @Override
+    public double[] getCollisionTimeBoundsMillis() {
+        return collisionTime.boundsMillis();
+    }
+
+    @Override
+    public long[] getCollisionTimeBuckets() {
+        return collisionTime.snapshot();
+    }
+
+    @Override
+    public long getInputPressCount() {
+        return inputToSimulation.count.sum();
+    }
+
+    @Override
+    public double getInputToSimulationP50Millis() {
+        return inputToSimulation.percentileMillis(0.50);
+    }
+
+    @Override
+    public double getInputToSimulationP99Millis() {
+        return inputToSimulation.percentileMillis(0.99);
+    }
+
+    @Override
+    public long[] getInputToSimulationBuckets() {
+        return inputToSimulation.snapshot();
+    }
+
+    @Override
+    public double getInputToPresentP50Millis() {
+        return inputToPresent.percentileMillis(0.50);
+    }
+
+    @Override
+    public double getInputToPresentP99Millis() {
+        return inputToPresent.percentileMillis(0.99);
+    }
+
+    @Override
+    public long[] getInputToPresentBuckets() {
+        return inputToPresent.snapshot();
+    }
+
+    @Override
+    public double[] getInputLatencyBoundsMillis() {
+        return inputToSimulation.boundsMillis();
+    }
+}
@@ -0,0 +1,74 @@
+package engine;
+
+/**
+ * JMX view of {@link Metrics}, registered as
+ * invaders:type=Metrics,session=&lt;tag&gt;.
+ *
+ * Times are in milliseconds, histogram percentiles are the upper bound of
+ * the bucket they fall in, and the bucket arrays hold one count per bound
+ * plus one for everything above the last bound.
+ */
+public interface MetricsMXBean {
+
+    String getSession();
+
+    long getBulletsFired();
+
+    long getEnemiesKilled();
+
+    long getPoolHits();
+
+    long getPoolMisses();
+
+    long getSoundsPlayed();
+
+    long getFilesWritten();
+
+    int getLiveEntities();
+
+    long getHeapUsedBytes();
+
+    long getHeapMaxBytes();
+
+    long getFrameCount();
+
+    double getFrameTimeMeanMillis();
+
+    double getFrameTimeP50Millis();
+
+    double getFrameTimeP99Millis();
+
+    double getFrameTimeMaxMillis();
+
+    double[] getFrameTimeBoundsMillis();
+
+    long[] getFrameTimeBuckets();
+
+    long getCollisionPassCount();
+
+    double getCollisionTimeMeanMillis();
+
+    double getCollisionTimeP99Millis();
+
+    double getCollisionTimeMaxMillis();
+
+    double[] getCollisionTimeBoundsMillis();
+
+    long[] getCollisionTimeBuckets();
+
+    long getInputPressCount();
+
+    double getInputToSimulationP50Millis();
+
+    double getInputToSimulationP99Millis();
+
+    long[] getInputToSimulationBuckets();
+
+    double getInputToPresentP50Millis();
+
+    double getInputToPresentP99Millis();
+
+    long[] getInputToPresentBuckets();
+
+    double[] getInputLatencyBoundsMillis();
+}
@@ -0,0 +1,191 @@
+package engine;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Small JMH-style runner shared by the benchmark harnesses.
+ *
+ * Each benchmark runs for WARMUP_ITERATIONS, then MEASURED_ITERATIONS, each
+ * a fixed amount of wall time, on the calling thread. Time per operation is
+ * reported as the mean over the measured iterations with its min and max;
+ * allocation per operation comes from the thread allocation counter. Results
+ * go to a JSON report with one benchmark per line, which can be compared
+ * with an earlier report:
+ * <pre>
+ * java engine.Microbench old.json new.json
+ * </pre>
+ * -Dinvaders.bench.filter=&lt;regex&gt; runs only the matching benchmarks,
+ * -Dinvaders.bench.quick=true runs shorter iterations for a smoke test.
+ */
+final class Microbench {
+
+    private static final boolean QUICK = Boolean.getBoolean("invaders.bench.quick");
+    private static final int WARMUP_ITERATIONS = QUICK ? 1 : 5;
+    private static final int MEASURED_ITERATIONS = QUICK ? 2 : 10;
+    private static final long ITERATION_NANOS = (QUICK ? 50 : 200) * 1_000_000L;
+    /** Operations between two clock reads. */
+    private static final int BATCH = 16;
+
+    /** Source of per-thread allocation counters, null if the JVM has none. */
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+            ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                    && bean.isThreadAllocatedMemorySupported() ? bean : null;
+
+    /** One report line, as written by {@link #add}. */
+    private static final Pattern LINE = Pattern.compile(
+            "\\{\"benchmark\": \"([^\"]*)\", \"params\": \"([^\"]*)\", \"nsPerOp\": ([0-9.]+),"
+                    + ".*\"bytesPerOp\": ([0-9.]+)");
+
+    /** Benchmarked operation. */
+    interface Op {
+        /**
+         * Runs the operation once.
+         *
+         * @return Any value derived from the result, so it is not optimized away.
+         */
+        long run();
+    }
+
+    private final Pattern filter;
+    private final StringBuilder results = new StringBuilder();
+    /** Sink for the results of the operations. */
+    private long sink;
+
+    Microbench() {
+        String regex = System.getProperty("invaders.bench.filter");
+        filter = regex == null ? null : Pattern.compile(regex);
+    }
+
+    /**
+     * Measures an operation and adds it to the report.
+     *
+     * @param benchmark
+     *            Benchmark name.
+     * @param params
+     *            Parameters of this run, e.g. "bullets=50 enemies=60".
+     * @param op
+     *            Operation to measure.
+     */
+    void add(final String benchmark, final String params, final Op op) {
+        if (filter != null && !filter.matcher(benchmark).find()) return;
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++)
+            iteration(op);
+        double sum = 0;
+        double min = Double.MAX_VALUE;
+        double max = 0;
+        long ops = 0;
+        long bytes = 0;
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            long bytesBefore = allocatedBytes();
+            long[] result = iteration(op);
+            bytes += allocatedBytes() - bytesBefore;
+            double nsPerOp = result[1] / (double) result[0];
+            sum += nsPerOp;
+            min = Math.min(min, nsPerOp);
+            max = Math.max(max, nsPerOp);
+            ops += result[0];
+        }
+
+        String line = String.format(Locale.ROOT,
+                "{\"benchmark\": \"%s\", \"params\": \"%s\", \"nsPerOp\": %.1f, \"nsPerOpMin\": %.1f,"
+                        + " \"nsPerOpMax\": %.1f, \"ops\": %d, \"bytesPerOp\": %.1f}",
+                benchmark, params, sum / MEASURED_ITERATIONS, min, max, ops,
+                THREAD_BEAN == null ? 0.0 : bytes / (double) ops);
+        if (results.length() > 0) results.append(",\n");
+        results.append("    ").append(line);
+        System.out.println(line);
+    }
+
+    /**
+     * @return {operations, nanoseconds} of one iteration.
+     */
+    private long[] iteration(final Op op) {
+        long ops = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (int i = 0; i < BATCH; i++)
+                sink ^= op.run();
+            ops += BATCH;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ITERATION_NANOS);
+        return new long[] {ops, elapsed};
+    }
+
+    /**
+     * Writes the report.
+     *
+     * @param suite
+     *            Name of the harness.
+     * @param reportPath
+     *            Where to write it.
+     */
+    void write(final String suite, final Path reportPath) throws IOException {
+        String json = "{\n"
+                + "  \"suite\": \"" + suite + "\",\n"
+                + "  \"javaVersion\": \"" + System.getProperty("java.version") + "\",\n"
+                + "  \"quick\": " + QUICK + ",\n"
+                + "  \"sink\": " + sink + ",\n"
+                + "  \"results\": [\n" + results + "\n  ]\n}\n";
+        Files.writeString(reportPath, json, StandardCharsets.UTF_8);
+        System.out.println("Report written to " + reportPath.toAbsolutePath());
+    }
+
+    /**
+     * @return Bytes allocated so far by this thread, or 0 if not supported.
+     */
+    private static long allocatedBytes() {
+        return THREAD_BEAN != null ? THREAD_BEAN.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    /**
+     * Compares two reports and prints the change of every benchmark found
+     * in both.
+     *
+     * @param args
+     *            Old report, new report.
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: java engine.Microbench old.json new.json");
+            System.exit(2);
+        }
+        Map<String, double[]> before = read(Path.of(args[0]));
+        Map<String, double[]> after = read(Path.of(args[1]));
+        System.out.printf(Locale.ROOT, "%-50s %12s %12s %8s %12s %12s%n",
+                "benchmark", "old ns/op", "new ns/op", "change", "old B/op", "new B/op");
+        for (Map.Entry<String, double[]> entry : after.entrySet()) {
+            double[] old = before.get(entry.getKey());
+            if (old == null) continue;
+            double[] now = entry.getValue();
+            System.out.printf(Locale.ROOT, "%-50s %12.1f %12.1f %+7.1f%% %12.1f %12.1f%n",
+                    entry.getKey(), old[0], now[0], (now[0] / old[0] - 1) * 100, old[1], now[1]);
+        }
+    }
+
+    /**
+     * @return "benchmark params" to {ns/op, bytes/op}, in report order.
+     */
+    private static Map<String, double[]> read(final Path report) throws IOException {
+        Map<String, double[]> results = new LinkedHashMap<>();
+        List<String> lines = Files.readAllLines(report, StandardCharsets.UTF_8);
+        for (String line : lines) {
+            Matcher m = LINE.matcher(line);
+            if (m.find())
+                results.put((m.group(1) + " " + m.group(2)).trim(),
+                        new double[] {Double.parseDouble(m.group(3)), Double.parseDouble(m.group(4))});
+        }
+        return results;
+    }
+}
@@ -24,7 +24,7 @@ public class MinimalFormatter extends Formatter {
 
         String output = "[" + logRecord.getLevel() + '|' +
                 FORMAT.format(new Date(logRecord.getMillis())) +
-                "]: " + logRecord.getMessage() + ' ' +
+                "]: " + formatMessage(logRecord) + ' ' +
                 LINE_SEPARATOR;
 
 		return output;
@@ -0,0 +1,208 @@
+package engine;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Music track streamed from disk in small chunks.
+ *
+ * Only one read buffer is held per track, however long the track is. The
+ * source is converted to 16-bit PCM by AudioSystem and resampled to
+ * {@link SoundCache#OUTPUT_FORMAT} on the fly with linear interpolation,
+ * the same way SoundCache converts effects. At the end of the file the
+ * stream reopens it and keeps going.
+ */
+final class MusicStream {
+
+    /** Source frames read per chunk. */
+    private static final int CHUNK_FRAMES = 4096;
+
+    private static final Logger logger = Core.getLogger();
+
+    /** Streams opened ahead of time, waiting for the mixer. */
+    private static final Map<String, MusicStream> prepared = new ConcurrentHashMap<>();
+
+    /** Resource path of the track. */
+    private final String resourcePath;
+    /** Reused read buffer. */
+    private final byte[] buffer;
+    /** Source channel count. */
+    private final int channels;
+    /** Source frames per output frame. */
+    private final double step;
+
+    private AudioInputStream source;
+    /** Frames in the buffer and the index of the next one to read. */
+    private int bufferedFrames;
+    private int bufferIndex;
+    /** Interpolation state: previous and next source frame, position between. */
+    private int prevLeft, prevRight, nextLeft, nextRight;
+    private double frac;
+    /** Whether the track has been fully read and could not be reopened. */
+    private boolean ended;
+
+    private MusicStream(final String resourcePath, final AudioInputStream source) {
+        AudioFormat format = source.getFormat();
+        this.resourcePath = resourcePath;
+        this.source = source;
+        this.channels = format.getChannels();
+        this.step = format.getSampleRate() / SoundCache.OUTPUT_FORMAT.getSampleRate();
+        this.buffer = new byte[CHUNK_FRAMES * 2 * channels];
+        // Two source frames are read before the first output frame.
+        this.frac = 2.0;
+    }
+
+    /**
+     * Opens a track so the mixer can start it without touching the disk.
+     * Safe to call from a background thread.
+     *
+     * @param resourcePath
+     *            Resource path, e.g. "sound/SpaceInvader-GameTheme.wav".
+     */
+    static void prepare(final String resourcePath) {
+        if (prepared.containsKey(resourcePath)) return;
+        MusicStream stream = open(resourcePath);
+        if (stream != null && prepared.putIfAbsent(resourcePath, stream) != null)
+            stream.close();
+    }
+
+    /**
+     * Returns a stream prepared earlier, or opens one.
+     *
+     * @return Stream positioned at the start, or null if the track cannot be read.
+     */
+    static MusicStream take(final String resourcePath) {
+        MusicStream stream = prepared.remove(resourcePath);
+        return stream != null ? stream : open(resourcePath);
+    }
+
+    /**
+     * Opens a track.
+     *
+     * @return Stream, or null if the track cannot be read.
+     */
+    static MusicStream open(final String resourcePath) {
+        AudioInputStream source = openSource(resourcePath);
+        return source == null ? null : new MusicStream(resourcePath, source);
+    }
+
+    private static AudioInputStream openSource(final String resourcePath) {
+        try {
+            InputStream in = SoundCache.open(resourcePath);
+            if (in == null) {
+                logger.fine("Music resource not found: " + resourcePath);
+                return null;
+            }
+            AudioInputStream raw = AudioSystem.getAudioInputStream(in);
+            AudioFormat format = raw.getFormat();
+            AudioFormat pcm16 = new AudioFormat(format.getSampleRate(), 16, format.getChannels(), true, false);
+            return AudioSystem.getAudioInputStream(pcm16, raw);
+        } catch (UnsupportedAudioFileException | IOException | IllegalArgumentException e) {
+            logger.info("Unable to stream music '" + resourcePath + "': " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return Resource path of the track.
+     */
+    String getResourcePath() {
+        return resourcePath;
+    }
+
+    /**
+     * Adds the next frames of the track to a mix buffer.
+     *
+     * @param mix
+     *            Interleaved stereo mix buffer.
+     * @param frames
+     *            Number of output frames to add.
+     * @param gain
+     *            Track gain.
+     */
+    void mixInto(final int[] mix, final int frames, final float gain) {
+        for (int f = 0; f < frames && !ended; f++) {
+            while (frac >= 1.0) {
+                if (!advance()) return;
+                frac -= 1.0;
+            }
+            int left = (int) (prevLeft + (nextLeft - prevLeft) * frac);
+            int right = (int) (prevRight + (nextRight - prevRight) * frac);
+            mix[f * 2] += (int) (left * gain);
+            mix[f * 2 + 1] += (int) (right * gain);
+            frac += step;
+        }
+    }
+
+    /**
+     * Moves to the next source frame, refilling the buffer or looping as needed.
+     */
+    private boolean advance() {
+        if (bufferIndex >= bufferedFrames && !fill()) {
+            ended = true;
+            return false;
+        }
+        int b = bufferIndex * 2 * channels;
+        prevLeft = nextLeft;
+        prevRight = nextRight;
+        nextLeft = (short) ((buffer[b] & 0xFF) | (buffer[b + 1] << 8));
+        nextRight = channels > 1 ? (short) ((buffer[b + 2] & 0xFF) | (buffer[b + 3] << 8)) : nextLeft;
+        bufferIndex++;
+        return true;
+    }
+
+    /**
+     * Reads the next chunk, reopening the track at its end.
+     */
+    private boolean fill() {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            int read = readChunk();
+            if (read > 0) {
+                bufferedFrames = read;
+                bufferIndex = 0;
+                return true;
+            }
+            close();
+            source = openSource(resourcePath);
+            if (source == null) return false;
+        }
+        return false;
+    }
+
+    private int readChunk() {
+        if (source == null) return 0;
+        try {
+            int frameBytes = 2 * channels;
+            int total = 0;
+            while (total < buffer.length) {
+                int n = source.read(buffer, total, buffer.length - total);
+                if (n < 0) break;
+                total += n;
+            }
+            return total / frameBytes;
+        } catch (IOException e) {
+            logger.info("Music stream '" + resourcePath + "' failed: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Closes the underlying file.
+     */
+    void close() {
+        if (source != null) {
+            try {
+                source.close();
+            } catch (IOException ignored) {
+            }
+            source = null;
+        }
+    }
+}
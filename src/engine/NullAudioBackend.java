@@ -0,0 +1,61 @@
+package engine;
+
+import javax.sound.sampled.AudioFormat;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Audio backend that discards everything.
+ *
+ * Writes still take as long as the audio would have played, so the mixer
+ * runs at its normal rate and music positions advance as usual. Used on
+ * machines without a sound device and as the fallback of the mixer's
+ * circuit breaker.
+ */
+public class NullAudioBackend implements AudioBackend {
+
+    /** Output frame rate. */
+    private float frameRate;
+    /** Bytes per output frame. */
+    private int frameSize;
+    /** Time at which the audio written so far would finish playing. */
+    private long deadline;
+    /** Frames written since open. */
+    private long framesWritten;
+
+    @Override
+    public void open(final AudioFormat format, final int bufferFrames) {
+        this.frameRate = format.getFrameRate();
+        this.frameSize = format.getFrameSize();
+        this.deadline = System.nanoTime();
+        this.framesWritten = 0;
+    }
+
+    @Override
+    public void write(final byte[] data, final int length) {
+        int frames = length / frameSize;
+        framesWritten += frames;
+        deadline += (long) (frames * 1_000_000_000.0 / frameRate);
+
+        long now = System.nanoTime();
+        if (deadline > now)
+            LockSupport.parkNanos(deadline - now);
+        else
+            deadline = now;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public String getName() {
+        return "null";
+    }
+
+    /**
+     * @return Frames written since the backend was opened.
+     */
+    public long getFramesWritten() {
+        return framesWritten;
+    }
+}
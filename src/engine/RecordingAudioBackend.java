@@ -0,0 +1,78 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Audio backend that records which sounds would have played and when,
+ * instead of producing any output. Lets audio behaviour be checked on
+ * machines without a sound device.
+ */
+public final class RecordingAudioBackend extends NullAudioBackend {
+
+    /** One sound start. */
+    public static final class Event {
+        private final long timeNanos;
+        private final long framePosition;
+        private final String resourcePath;
+
+        Event(final long timeNanos, final long framePosition, final String resourcePath) {
+            this.timeNanos = timeNanos;
+            this.framePosition = framePosition;
+            this.resourcePath = resourcePath;
+        }
+
+        /**
+         * @return System.nanoTime() when the mixer started the sound.
+         */
+        public long getTimeNanos() {
+            return timeNanos;
+        }
+
+        /**
+         * @return Output frame at which the sound starts.
+         */
+        public long getFramePosition() {
+            return framePosition;
+        }
+
+        /**
+         * @return Sound resource.
+         */
+        public String getResourcePath() {
+            return resourcePath;
+        }
+
+        @Override
+        public String toString() {
+            return framePosition + " " + resourcePath;
+        }
+    }
+
+    /** Recorded sound starts; guarded by this. */
+    private final List<Event> events = new ArrayList<>();
+
+    @Override
+    public synchronized void soundStarted(final String resourcePath, final long framePosition) {
+        events.add(new Event(System.nanoTime(), framePosition, resourcePath));
+    }
+
+    @Override
+    public String getName() {
+        return "recording";
+    }
+
+    /**
+     * @return Copy of the sound starts recorded so far, oldest first.
+     */
+    public synchronized List<Event> getEvents() {
+        return new ArrayList<>(events);
+    }
+
+    /**
+     * Forgets the recorded sound starts.
+     */
+    public synchronized void clear() {
+        events.clear();
+    }
+}
@@ -0,0 +1,183 @@
+package engine;
+
+import entity.Bullet;
+import entity.BulletPool;
+import entity.EnemyShipFormation;
+import entity.Entity;
+import entity.Item;
+import entity.Ship;
+import screen.Screen;
+
+import java.awt.Color;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+
+/**
+ * Benchmarks of the DrawManager primitives, rendered headless into the
+ * offscreen back buffer.
+ *
+ * Covers drawEntity for every sprite type at its native, half and double
+ * size, drawExplosions with a steady number of live explosions, the
+ * starfield updates of the game and menu screens, the HUD and a whole
+ * frame composed the way GameScreen.draw does it. See {@link Microbench}
+ * for how results are measured and compared.
+ *
+ * Usage, from the project root with the classes in out/:
+ * <pre>
+ * java -Djava.awt.headless=true -cp out:res engine.RenderBenchmark [report.json]
+ * </pre>
+ */
+public final class RenderBenchmark {
+
+    private static final int WIDTH = 448;
+    private static final int HEIGHT = 520;
+    /** Live explosion counts of the explosion benchmark. */
+    private static final int[] EXPLOSIONS = {1, 10, 50};
+    /** Bullets and items on screen in the full frame. */
+    private static final int FRAME_BULLETS = 30;
+    private static final int FRAME_ITEMS = 3;
+    /** Same as GameScreen. */
+    private static final int SEPARATION_LINE_HEIGHT = 68;
+
+    private RenderBenchmark() {
+    }
+
+    /** Entity showing any sprite at any size. */
+    private static final class SpriteEntity extends Entity {
+        SpriteEntity(final DrawManager.SpriteType type, final int width, final int height) {
+            super(0, 0, width, height, Color.GREEN);
+            this.spriteType = type;
+        }
+    }
+
+    /**
+     * Runs the benchmarks.
+     *
+     * @param args
+     *            Optional report path, "render-benchmark.json" by default.
+     */
+    public static void main(final String[] args) throws Exception {
+        Path reportPath = Path.of(args.length > 0 ? args[0] : "render-benchmark.json");
+        Core.getLogger().setLevel(Level.WARNING);
+        Screen screen = new Screen(WIDTH, HEIGHT, 60);
+        DrawManager drawManager = Core.getDrawManager();
+        drawManager.initDrawing(screen);
+        Microbench bench = new Microbench();
+
+        entities(bench, drawManager);
+        explosions(bench, drawManager);
+        bench.add("updateGameSpace", "", () -> {
+            drawManager.updateGameSpace();
+            return 0;
+        });
+        bench.add("updateMenuSpace", "", () -> {
+            drawManager.updateMenuSpace();
+            return 0;
+        });
+        hud(bench, drawManager, screen);
+        frame(bench, drawManager, screen);
+
+        bench.write("render", reportPath);
+    }
+
+    private static void entities(final Microbench bench, final DrawManager drawManager) {
+        for (DrawManager.SpriteType type : DrawManager.SpriteType.values()) {
+            boolean[][] sprite = DrawManager.getSprite(type);
+            int width = sprite.length * 2;
+            int height = sprite[0].length * 2;
+            int[][] sizes = {{width, height}, {width / 2, height / 2}, {width * 2, height * 2}};
+            String[] names = {"native", "half", "double"};
+            for (int i = 0; i < sizes.length; i++) {
+                Entity entity = new SpriteEntity(type, Math.max(1, sizes[i][0]), Math.max(1, sizes[i][1]));
+                bench.add("drawEntity", type + " " + names[i] + "=" + sizes[i][0] + "x" + sizes[i][1], () -> {
+                    drawManager.drawEntity(entity, 100, 100);
+                    return 0;
+                });
+            }
+        }
+    }
+
+    /**
+     * Draws with a steady number of live explosions, replacing the ones
+     * that finish.
+     */
+    private static void explosions(final Microbench bench, final DrawManager drawManager) {
+        Random random = new Random(7);
+        for (int count : EXPLOSIONS) {
+            bench.add("drawExplosions", "explosions=" + count, () -> {
+                while (drawManager.getExplosionCount() < count)
+                    drawManager.triggerExplosion(random.nextInt(WIDTH), random.nextInt(HEIGHT), true, false);
+                drawManager.drawExplosions();
+                return drawManager.getExplosionCount();
+            });
+            // Let the explosions of this run play out before the next one.
+            while (drawManager.getExplosionCount() > 0)
+                drawManager.drawExplosions();
+        }
+    }
+
+    private static void hud(final Microbench bench, final DrawManager drawManager, final Screen screen) {
+        bench.add("drawScore", "", () -> {
+            drawManager.drawScore(screen, 123_450);
+            return 0;
+        });
+        bench.add("drawLives", "", () -> {
+            drawManager.drawLives(screen, 3);
+            return 0;
+        });
+        bench.add("drawCoins", "", () -> {
+            drawManager.drawCoins(screen, 1_234);
+            return 0;
+        });
+        bench.add("drawShipCount", "", () -> {
+            drawManager.drawShipCount(screen, 42);
+            return 0;
+        });
+    }
+
+    /**
+     * One frame composed like GameScreen.draw: a new back buffer, the
+     * explosions and starfield, the ship, a 10x6 formation, bullets, items
+     * and the HUD.
+     */
+    private static void frame(final Microbench bench, final DrawManager drawManager, final Screen screen) {
+        GameState state = new GameState(1, 3, 0);
+        Ship ship = new Ship(WIDTH / 2 - 60, HEIGHT - 30, Entity.Team.PLAYER, Ship.ShipType.NORMAL, state);
+        EnemyShipFormation formation = new EnemyShipFormation(new GameSettings(10, 6, 60, 2000));
+        formation.attach(screen);
+        Random random = new Random(3);
+        List<Bullet> bullets = new ArrayList<>();
+        for (int i = 0; i < FRAME_BULLETS; i++)
+            bullets.add(BulletPool.getBullet(random.nextInt(WIDTH), 100 + random.nextInt(HEIGHT - 150),
+                    i % 2 == 0 ? -6 : 4, 3, 6, i % 2 == 0 ? Entity.Team.PLAYER : Entity.Team.ENEMY));
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < FRAME_ITEMS; i++)
+            items.add(new Item(i, random.nextInt(WIDTH), 200 + random.nextInt(200), 2));
+        List<Achievement> noToasts = Collections.emptyList();
+
+        bench.add("gameScreenFrame", "enemies=" + formation.getShipCount() + " bullets=" + FRAME_BULLETS, () -> {
+            drawManager.initDrawing(screen);
+            drawManager.drawExplosions();
+            drawManager.updateGameSpace();
+            drawManager.drawEntity(ship, ship.getPositionX(), ship.getPositionY());
+            formation.draw();
+            for (Bullet bullet : bullets)
+                drawManager.drawEntity(bullet, bullet.getPositionX(), bullet.getPositionY());
+            for (Item item : items)
+                drawManager.drawEntity(item, item.getPositionX(), item.getPositionY());
+            drawManager.drawScore(screen, state.getScore());
+            drawManager.drawLives(screen, state.getLives());
+            drawManager.drawCoins(screen, state.getCoins());
+            drawManager.drawLevel(screen, state.getLevel());
+            drawManager.drawHorizontalLine(screen, SEPARATION_LINE_HEIGHT - 1);
+            drawManager.drawShipCount(screen, formation.getShipCount());
+            drawManager.drawAchievementToasts(screen, noToasts);
+            drawManager.completeDrawing(screen);
+            return 0;
+        });
+    }
+}
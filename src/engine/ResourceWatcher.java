@@ -0,0 +1,182 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+/**
+ * Watches level.csv and item_db.csv and reloads them when they change.
+ *
+ * Parsing and validation run on the watcher thread. A successful reload is
+ * parked until the game thread reaches a stage boundary and calls
+ * {@link #takeLevels()} / {@link #applyItemDB()}; a failed one is logged and
+ * the current data is kept.
+ */
+public final class ResourceWatcher {
+
+    /** Directory holding the watched files. */
+    private static final Path RESOURCE_DIR = GameSettings.LEVEL_CSV.getParent();
+    /** Item database file name. */
+    private static final Path ITEM_DB_FILE = Path.of("item_db.csv");
+    /** Time to wait for an editor to finish writing before parsing. */
+    private static final long DEBOUNCE_MILLIS = 250;
+
+    /** Singleton instance of the class. */
+    private static ResourceWatcher instance;
+
+    /** Application logger. */
+    private final Logger logger;
+    /** Stage list parsed off-thread, waiting to be installed. */
+    private final AtomicReference<List<GameSettings>> pendingLevels = new AtomicReference<>();
+    /** Item database parsed off-thread, waiting to be installed. */
+    private final AtomicReference<ItemDB> pendingItemDB = new AtomicReference<>();
+    /** Watcher thread, null until started. */
+    private Thread thread;
+
+    /**
+     * private constructor.
+     */
+    private ResourceWatcher() {
+        this.logger = Core.getLogger();
+    }
+
+    /**
+     * Returns shared instance of ResourceWatcher.
+     *
+     * @return Shared instance of ResourceWatcher.
+     */
+    public static ResourceWatcher getInstance() {
+        if (instance == null)
+            instance = new ResourceWatcher();
+        return instance;
+    }
+
+    /**
+     * Starts watching the resource directory on a daemon thread.
+     * Does nothing if already started or if the directory cannot be watched.
+     */
+    public void start() {
+        if (thread != null) return;
+
+        WatchService watchService;
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            RESOURCE_DIR.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            logger.warning("Resource hot reload disabled: " + e.getMessage());
+            return;
+        }
+
+        thread = new Thread(() -> watch(watchService), "resource-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("Watching " + RESOURCE_DIR.toAbsolutePath() + " for level and item changes.");
+    }
+
+    /**
+     * Watcher loop: collects change events, debounces them and reloads the
+     * affected files.
+     */
+    private void watch(final WatchService watchService) {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean levelsChanged = false;
+                boolean itemsChanged = false;
+
+                // Editors often write a file in several steps; gather them all.
+                do {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        Object context = event.context();
+                        if (GameSettings.LEVEL_CSV.getFileName().equals(context))
+                            levelsChanged = true;
+                        else if (ITEM_DB_FILE.equals(context))
+                            itemsChanged = true;
+                    }
+                    if (!key.reset()) {
+                        logger.warning("Resource directory is no longer watchable, hot reload stopped.");
+                        return;
+                    }
+                    key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+                } while (key != null);
+
+                if (levelsChanged)
+                    reloadLevels();
+                if (itemsChanged)
+                    reloadItems();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // shutting down
+        }
+    }
+
+    /**
+     * Compiles level.csv into a new pack and parks it for the game thread.
+     */
+    private void reloadLevels() {
+        if (!Files.exists(GameSettings.LEVEL_CSV)) return;
+        try {
+            LevelPack pack = LevelPack.rebuild(GameSettings.LEVEL_CSV, GameSettings.LEVEL_PACK);
+            pendingLevels.set(pack.asList());
+            logger.info("level.csv reloaded (" + pack.getStageCount() + " stages), applied at the next stage.");
+        } catch (LevelPack.LevelFormatException e) {
+            logger.warning("level.csv rejected, keeping current stages: " + e.getMessage());
+        } catch (IOException e) {
+            logger.warning("level.csv reload failed, keeping current stages: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parses item_db.csv into a new ItemDB and parks it for the game thread.
+     */
+    private void reloadItems() {
+        try {
+            ItemDB db = ItemDB.load();
+            pendingItemDB.set(db);
+            logger.info("item_db.csv reloaded (" + db.size() + " items), applied at the next stage.");
+        } catch (IOException | RuntimeException e) {
+            logger.warning("item_db.csv rejected, keeping current items: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Installs the reloaded item database, if any. Must be called from the
+     * game thread while no items are in play (between stages).
+     *
+     * @return True if a new item database was installed.
+     */
+    public boolean applyItemDB() {
+        ItemDB db = pendingItemDB.getAndSet(null);
+        if (db == null) return false;
+
+        ItemDB.install(db);
+        ItemManager.getInstance().reloadItemDB();
+        logger.info("Installed reloaded item_db.csv.");
+        return true;
+    }
+
+    /**
+     * Returns the reloaded stage list, if any. Must be called from the game
+     * thread between stages.
+     *
+     * @return New stage list, or null if level.csv has not changed.
+     */
+    public List<GameSettings> takeLevels() {
+        List<GameSettings> levels = pendingLevels.getAndSet(null);
+        if (levels != null)
+            logger.info("Installed reloaded level.csv.");
+        return levels;
+    }
+}
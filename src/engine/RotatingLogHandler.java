@@ -0,0 +1,282 @@
+package engine;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Log file handler with rotation, compression and a disk budget.
+ *
+ * Records go to &lt;dir&gt;/&lt;name&gt;.log. When that file grows past
+ * the size limit or gets older than the age limit it is renamed with a
+ * timestamp and gzipped on a background thread, and the oldest segments are
+ * deleted until the folder fits in the disk budget. A log left by the
+ * previous run is rotated at startup, so history survives restarts.
+ *
+ * flush() writes the buffer to the file every time but syncs it to disk
+ * at most once a second.
+ */
+public final class RotatingLogHandler extends Handler {
+
+    /** Minimum time between two fsyncs. */
+    private static final long SYNC_INTERVAL_NANOS = 1_000_000_000L;
+    /** Write buffer size. */
+    private static final int BUFFER_BYTES = 64 * 1024;
+    /** Timestamp of rotated segments; sorts in creation order. */
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final Path directory;
+    private final String baseName;
+    private final Path activeFile;
+    private final long maxFileBytes;
+    private final long maxAgeMillis;
+    private final long budgetBytes;
+
+    /** Compresses rotated segments and enforces the budget. */
+    private final ExecutorService compressor;
+
+    private FileChannel channel;
+    private OutputStream out;
+    /** Bytes written to the active file. */
+    private long size;
+    /** When the active file was opened. */
+    private long openedMillis;
+    /** Last fsync, System.nanoTime(). */
+    private long lastSyncNanos;
+
+    /**
+     * Opens the log, rotating the one left by a previous run.
+     *
+     * @param directory
+     *            Folder holding the log files; created if missing.
+     * @param baseName
+     *            File name prefix, e.g. "game".
+     * @param maxFileBytes
+     *            Size at which the active file is rotated.
+     * @param maxAgeMillis
+     *            Age at which the active file is rotated.
+     * @param budgetBytes
+     *            Total size allowed for the folder; oldest segments go first.
+     * @throws IOException
+     *             If the log cannot be created.
+     */
+    public RotatingLogHandler(final Path directory, final String baseName, final long maxFileBytes,
+                              final long maxAgeMillis, final long budgetBytes) throws IOException {
+        this.directory = directory;
+        this.baseName = baseName;
+        this.activeFile = directory.resolve(baseName + ".log");
+        this.maxFileBytes = maxFileBytes;
+        this.maxAgeMillis = maxAgeMillis;
+        this.budgetBytes = budgetBytes;
+        this.compressor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "log-compress");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+
+        Files.createDirectories(directory);
+        if (Files.exists(activeFile) && Files.size(activeFile) > 0)
+            moveToSegment();
+        open();
+
+        // Also finish segments a crashed run left uncompressed.
+        compressor.execute(() -> {
+            for (Path segment : listSegments())
+                if (segment.getFileName().toString().endsWith(".log"))
+                    compress(segment);
+            enforceBudget();
+        });
+    }
+
+    @Override
+    public synchronized void publish(final LogRecord record) {
+        if (!isLoggable(record) || out == null) return;
+
+        byte[] bytes;
+        try {
+            bytes = getFormatter().format(record).getBytes(StandardCharsets.UTF_8);
+        } catch (RuntimeException e) {
+            reportError(null, e, ErrorManager.FORMAT_FAILURE);
+            return;
+        }
+        try {
+            out.write(bytes);
+            size += bytes.length;
+            if (size >= maxFileBytes || System.currentTimeMillis() - openedMillis >= maxAgeMillis)
+                rotate();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (out == null) return;
+        try {
+            out.flush();
+            long now = System.nanoTime();
+            if (now - lastSyncNanos >= SYNC_INTERVAL_NANOS) {
+                channel.force(false);
+                lastSyncNanos = now;
+            }
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.FLUSH_FAILURE);
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            try {
+                closeActive();
+            } catch (IOException e) {
+                reportError(null, e, ErrorManager.CLOSE_FAILURE);
+            }
+        }
+        compressor.shutdown();
+        try {
+            compressor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(activeFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_BYTES);
+        size = channel.size();
+        openedMillis = System.currentTimeMillis();
+        lastSyncNanos = System.nanoTime();
+    }
+
+    private void closeActive() throws IOException {
+        if (out == null) return;
+        out.flush();
+        channel.force(false);
+        out.close();
+        out = null;
+        channel = null;
+    }
+
+    /**
+     * Closes the active file, hands it to the compressor and starts a new one.
+     * If the file cannot be renamed, logging goes on in it and rotation is
+     * tried again after another maxFileBytes.
+     */
+    private void rotate() {
+        Path segment = null;
+        try {
+            closeActive();
+            segment = moveToSegment();
+        } catch (IOException e) {
+            reportError("Could not rotate " + activeFile + ", appending to it", e, ErrorManager.GENERIC_FAILURE);
+        } finally {
+            if (out == null) {
+                try {
+                    open();
+                } catch (IOException e) {
+                    reportError("Could not reopen " + activeFile, e, ErrorManager.OPEN_FAILURE);
+                }
+            }
+        }
+        if (segment == null) {
+            size = 0; // not rotated; do not retry on every record
+            return;
+        }
+        Path rotated = segment;
+        compressor.execute(() -> {
+            compress(rotated);
+            enforceBudget();
+        });
+    }
+
+    /**
+     * Renames the active file to a timestamped segment.
+     */
+    private Path moveToSegment() throws IOException {
+        Path segment = directory.resolve(baseName + "-" + LocalDateTime.now().format(STAMP) + ".log");
+        Files.move(activeFile, segment);
+        return segment;
+    }
+
+    /**
+     * Replaces a segment with its gzipped copy.
+     */
+    private void compress(final Path segment) {
+        if (!Files.exists(segment)) return;
+        Path target = segment.resolveSibling(segment.getFileName() + ".gz");
+        try (InputStream in = Files.newInputStream(segment);
+             OutputStream gz = new GZIPOutputStream(Files.newOutputStream(target), BUFFER_BYTES)) {
+            in.transferTo(gz);
+        } catch (IOException e) {
+            reportError("Could not compress " + segment, e, ErrorManager.WRITE_FAILURE);
+            return;
+        }
+        try {
+            Files.delete(segment);
+        } catch (IOException e) {
+            reportError("Could not delete " + segment, e, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    /**
+     * Deletes the oldest compressed segments until the folder fits in the
+     * budget. Segments still waiting for compression are left alone.
+     */
+    private void enforceBudget() {
+        List<Path> segments = listSegments();
+        segments.removeIf(path -> !path.getFileName().toString().endsWith(".gz"));
+        long total = 0;
+        try {
+            if (Files.exists(activeFile))
+                total += Files.size(activeFile);
+            for (Path segment : segments)
+                total += Files.size(segment);
+            for (Path segment : segments) {
+                if (total <= budgetBytes) break;
+                long length = Files.size(segment);
+                Files.delete(segment);
+                total -= length;
+            }
+        } catch (IOException e) {
+            reportError("Could not enforce the log budget", e, ErrorManager.GENERIC_FAILURE);
+        }
+    }
+
+    /**
+     * @return Rotated segments, oldest first.
+     */
+    private List<Path> listSegments() {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, baseName + "-*.log*")) {
+            for (Path path : stream)
+                segments.add(path);
+        } catch (IOException e) {
+            reportError("Could not list " + directory, e, ErrorManager.GENERIC_FAILURE);
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+}
@@ -0,0 +1,223 @@
+package engine;
+
+import entity.Bullet;
+import entity.BulletPool;
+import entity.EnemyShip;
+import entity.EnemyShipFormation;
+import entity.Entity;
+import entity.Item;
+import entity.ItemPool;
+import screen.Screen;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.logging.Level;
+
+/**
+ * Benchmarks of the simulation hot paths, run headless.
+ *
+ * Covers the bullet/enemy collision pass of GameScreen at several bullet
+ * and enemy counts, EnemyShipFormation construction, update, destruction
+ * and iteration, BulletPool, ItemManager.obtainDrop, the GameState effect
+ * queries and GameSettings.parseStages on a generated level file. See
+ * {@link Microbench} for how results are measured and compared.
+ *
+ * Usage, from the project root with the classes in out/:
+ * <pre>
+ * java -Djava.awt.headless=true -cp out:res engine.SimulationBenchmark [report.json]
+ * </pre>
+ */
+public final class SimulationBenchmark {
+
+    /** Bullet and formation sizes of the collision benchmark. */
+    private static final int[] BULLETS = {10, 50, 200};
+    private static final int[][] FORMATIONS = {{5, 4}, {10, 6}, {20, 10}};
+    /** Screen the formations are attached to. */
+    private static final int WIDTH = 448;
+    private static final int HEIGHT = 520;
+    /** Stages and changed enemies per stage of the generated level file. */
+    private static final int GENERATED_STAGES = 200;
+    private static final int GENERATED_CHANGES = 40;
+
+    private SimulationBenchmark() {
+    }
+
+    /**
+     * Runs the benchmarks.
+     *
+     * @param args
+     *            Optional report path, "simulation-benchmark.json" by default.
+     */
+    public static void main(final String[] args) throws Exception {
+        Path reportPath = Path.of(args.length > 0 ? args[0] : "simulation-benchmark.json");
+        // The game logs at INFO on several of these paths; keep the cost, drop the output.
+        Core.getLogger().setLevel(Level.WARNING);
+        Screen screen = new Screen(WIDTH, HEIGHT, 60);
+        Microbench bench = new Microbench();
+
+        collisions(bench);
+        formation(bench, screen);
+        bulletPool(bench);
+        drops(bench);
+        effects(bench);
+        parseStages(bench);
+
+        bench.write("simulation", reportPath);
+    }
+
+    /**
+     * The player-bullet half of GameScreen.manageCollisions: every bullet
+     * against every live ship of the formation, none of them hitting.
+     */
+    private static void collisions(final Microbench bench) {
+        for (int[] size : FORMATIONS) {
+            EnemyShipFormation formation = new EnemyShipFormation(new GameSettings(size[0], size[1], 60, 2000));
+            for (int bulletCount : BULLETS) {
+                List<Bullet> bullets = new ArrayList<>();
+                Random random = new Random(bulletCount);
+                // Below the formation, so the whole formation is scanned for each bullet.
+                for (int i = 0; i < bulletCount; i++)
+                    bullets.add(new Bullet(random.nextInt(WIDTH), HEIGHT - 40 - random.nextInt(60), 3, 6, -6));
+                bench.add("collisionPass", "bullets=" + bulletCount + " enemies=" + formation.getShipCount(), () -> {
+                    long hits = 0;
+                    for (Bullet bullet : bullets)
+                        for (EnemyShip enemyShip : formation)
+                            if (!enemyShip.isDestroyed() && checkCollision(bullet, enemyShip))
+                                hits++;
+                    return hits;
+                });
+            }
+        }
+    }
+
+    /** Same test as GameScreen.checkCollision. */
+    private static boolean checkCollision(final Entity a, final Entity b) {
+        int centerAX = a.getPositionX() + a.getWidth() / 2;
+        int centerAY = a.getPositionY() + a.getHeight() / 2;
+        int centerBX = b.getPositionX() + b.getWidth() / 2;
+        int centerBY = b.getPositionY() + b.getHeight() / 2;
+        int maxDistanceX = a.getWidth() / 2 + b.getWidth() / 2;
+        int maxDistanceY = a.getHeight() / 2 + b.getHeight() / 2;
+        int distanceX = Math.abs(centerAX - centerBX);
+        int distanceY = Math.abs(centerAY - centerBY);
+        return distanceX < maxDistanceX && distanceY < maxDistanceY;
+    }
+
+    private static void formation(final Microbench bench, final Screen screen) {
+        GameSettings settings = new GameSettings(10, 6, 60, 2000);
+
+        bench.add("formationConstruct", "10x6", () -> new EnemyShipFormation(settings).getShipCount());
+
+        EnemyShipFormation moving = new EnemyShipFormation(settings);
+        moving.attach(screen);
+        Set<Bullet> shots = new HashSet<>();
+        bench.add("formationUpdate", "10x6", () -> {
+            moving.update();
+            moving.shoot(shots);
+            int fired = shots.size();
+            BulletPool.recycle(shots);
+            shots.clear();
+            return fired;
+        });
+
+        EnemyShipFormation iterated = new EnemyShipFormation(settings);
+        bench.add("formationIterate", "10x6", () -> {
+            long sum = 0;
+            for (EnemyShip ship : iterated)
+                sum += ship.getPositionX();
+            return sum;
+        });
+
+        List<EnemyShip> ships = new ArrayList<>();
+        bench.add("formationConstructAndDestroyAll", "10x6", () -> {
+            EnemyShipFormation formation = new EnemyShipFormation(settings);
+            ships.clear();
+            for (EnemyShip ship : formation)
+                ships.add(ship);
+            for (EnemyShip ship : ships)
+                formation.destroy(ship);
+            return formation.getShipCount();
+        });
+    }
+
+    private static void bulletPool(final Microbench bench) {
+        Set<Bullet> batch = new HashSet<>();
+        for (int size : new int[] {1, 32}) {
+            bench.add("bulletPoolGetRecycle", "batch=" + size, () -> {
+                for (int i = 0; i < size; i++)
+                    batch.add(BulletPool.getBullet(100 + i, 400, -6, 3, 6, Entity.Team.PLAYER));
+                BulletPool.recycle(batch);
+                batch.clear();
+                return size;
+            });
+        }
+    }
+
+    private static void drops(final Microbench bench) {
+        EnemyShip enemy = new EnemyShip(100, 100, DrawManager.SpriteType.EnemyShipA1);
+        ItemManager items = ItemManager.getInstance();
+        Set<Item> dropped = new HashSet<>();
+        bench.add("obtainDrop", "", () -> {
+            Item drop = items.obtainDrop(enemy);
+            if (drop == null) return 0;
+            dropped.add(drop);
+            ItemPool.recycle(dropped);
+            dropped.clear();
+            return 1;
+        });
+    }
+
+    private static void effects(final Microbench bench) {
+        GameState state = new GameState(1, 3, 0);
+        state.addEffect(ItemEffect.ItemEffectType.TRIPLESHOT, 3, 3600);
+        bench.add("gameStateHasEffect", "active", () ->
+                state.hasEffect(ItemEffect.ItemEffectType.TRIPLESHOT) ? 1 : 0);
+        bench.add("gameStateHasEffect", "inactive", () ->
+                state.hasEffect(ItemEffect.ItemEffectType.SCOREBOOST) ? 1 : 0);
+        bench.add("gameStateGetEffectValue", "active", () -> {
+            Integer value = state.getEffectValue(ItemEffect.ItemEffectType.TRIPLESHOT);
+            return value == null ? 0 : value;
+        });
+        bench.add("gameStateUpdateEffects", "1 active", () -> {
+            state.updateEffects();
+            return 0;
+        });
+    }
+
+    /**
+     * Parses a generated level file with GENERATED_STAGES stages of
+     * GENERATED_CHANGES changed enemies each.
+     */
+    private static void parseStages(final Microbench bench) throws IOException {
+        StringBuilder csv = new StringBuilder("// generated by SimulationBenchmark\n");
+        Random random = new Random(1);
+        for (int stage = 0; stage < GENERATED_STAGES; stage++) {
+            if (stage > 0) csv.append("&\n");
+            csv.append("10,6,").append(20 + random.nextInt(60)).append(',').append(500 + random.nextInt(2000)).append('\n');
+            for (int i = 0; i < GENERATED_CHANGES; i++)
+                csv.append(random.nextInt(10)).append(',').append(random.nextInt(6)).append(',')
+                        .append(1 + random.nextInt(3)).append(',').append(1 + random.nextInt(3))
+                        .append(i % 2 == 0 ? ",#FF8800\n" : "\n");
+        }
+        Path file = Files.createTempFile("levels", ".csv");
+        try {
+            Files.writeString(file, csv, StandardCharsets.UTF_8);
+            bench.add("parseStages", "stages=" + GENERATED_STAGES + " changes=" + GENERATED_CHANGES, () -> {
+                try {
+                    return GameSettings.parseStages(file).size();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
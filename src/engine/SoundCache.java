@@ -0,0 +1,177 @@
+package engine;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Cache of sound effects decoded once into PCM in a single output format.
+ *
+ * The WAV files in res/sound come in several rates, widths and channel
+ * counts; every entry is converted to {@link #OUTPUT_FORMAT} so playback only
+ * has to hand over the byte array.
+ */
+public final class SoundCache {
+
+    /** Format of every cached sound: 44.1 kHz, 16-bit signed little-endian stereo. */
+    public static final AudioFormat OUTPUT_FORMAT = new AudioFormat(44100f, 16, 2, true, false);
+
+    /** Folder scanned by {@link #preloadAll()}. */
+    private static final String SOUND_DIR = "sound";
+    /** Folder on disk holding the resources, for runs without res on the classpath. */
+    private static final String RESOURCE_ROOT = "res";
+    /** Files larger than this are music and are streamed, not preloaded. */
+    private static final long MAX_PRELOAD_FILE_BYTES = 1024 * 1024;
+
+    private static final Logger logger = Core.getLogger();
+
+    /** Decoded sounds keyed by resource path (e.g. "sound/shoot.wav"). */
+    private static final Map<String, byte[]> cache = new ConcurrentHashMap<>();
+
+    private SoundCache() {
+    }
+
+    /**
+     * Decodes every WAV in res/sound into the cache and logs the cache size.
+     * Long files (music) are skipped; they are played by {@link MusicStream}.
+     */
+    public static void preloadAll() {
+        File dir = new File(RESOURCE_ROOT, SOUND_DIR);
+        File[] files = dir.listFiles((d, name) -> name.toLowerCase().endsWith(".wav"));
+        if (files != null) {
+            for (File file : files)
+                if (file.length() <= MAX_PRELOAD_FILE_BYTES)
+                    get(SOUND_DIR + "/" + file.getName());
+        }
+        logger.info("Sound cache: " + cache.size() + " sounds, " + (getMemoryBytes() / 1024) + " KiB.");
+    }
+
+    /**
+     * Returns the decoded PCM of a sound, decoding it on first use.
+     * Safe to call from any thread.
+     *
+     * @param resourcePath
+     *            Resource path, e.g. "sound/shoot.wav".
+     * @return PCM in {@link #OUTPUT_FORMAT}, or null if the sound cannot be loaded.
+     */
+    public static byte[] get(final String resourcePath) {
+        byte[] data = cache.get(resourcePath);
+        if (data != null) return data;
+
+        data = decode(resourcePath);
+        if (data != null)
+            cache.put(resourcePath, data);
+        return data;
+    }
+
+    /**
+     * @param resourcePath
+     *            Resource path.
+     * @return True if the sound is already decoded.
+     */
+    public static boolean contains(final String resourcePath) {
+        return cache.containsKey(resourcePath);
+    }
+
+    /**
+     * @return Number of cached sounds.
+     */
+    public static int size() {
+        return cache.size();
+    }
+
+    /**
+     * @return Bytes held by the cached PCM buffers.
+     */
+    public static long getMemoryBytes() {
+        long total = 0;
+        for (byte[] data : cache.values())
+            total += data.length;
+        return total;
+    }
+
+    /**
+     * Reads a sound and converts it to the output format.
+     */
+    private static byte[] decode(final String resourcePath) {
+        try (InputStream in = open(resourcePath)) {
+            if (in == null) {
+                logger.fine("Audio resource not found: " + resourcePath);
+                return null;
+            }
+            try (AudioInputStream source = AudioSystem.getAudioInputStream(in)) {
+                AudioFormat format = source.getFormat();
+                AudioFormat pcm16 = new AudioFormat(format.getSampleRate(), 16, format.getChannels(), true, false);
+                byte[] raw;
+                try (AudioInputStream converted = AudioSystem.getAudioInputStream(pcm16, source)) {
+                    raw = converted.readAllBytes();
+                }
+                return toOutputFormat(raw, format.getChannels(), format.getSampleRate());
+            }
+        } catch (UnsupportedAudioFileException | IOException | IllegalArgumentException e) {
+            logger.info("Unable to decode sound '" + resourcePath + "': " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Opens a resource from the classpath, falling back to the res folder on disk. */
+    static InputStream open(final String resourcePath) throws IOException {
+        InputStream in = SoundCache.class.getClassLoader().getResourceAsStream(resourcePath);
+        if (in == null) {
+            File file = new File(RESOURCE_ROOT, resourcePath);
+            if (!file.exists()) file = new File(resourcePath);
+            if (!file.exists()) return null;
+            in = new FileInputStream(file);
+        }
+        // AudioSystem needs mark/reset to sniff the file type.
+        return new BufferedInputStream(in);
+    }
+
+    /**
+     * Converts 16-bit little-endian PCM with any channel count and rate to
+     * stereo at the output rate, using linear interpolation.
+     */
+    private static byte[] toOutputFormat(final byte[] raw, final int channels, final float sampleRate) {
+        int inFrames = raw.length / (2 * channels);
+        float outRate = OUTPUT_FORMAT.getSampleRate();
+        int outFrames = (int) ((long) inFrames * (long) outRate / (long) sampleRate);
+        byte[] out = new byte[outFrames * 4];
+        double step = sampleRate / outRate;
+
+        for (int i = 0; i < outFrames; i++) {
+            double pos = i * step;
+            int frame = (int) pos;
+            double frac = pos - frame;
+            int next = Math.min(frame + 1, inFrames - 1);
+
+            int left = lerp(sample(raw, frame, 0, channels), sample(raw, next, 0, channels), frac);
+            int right = channels > 1
+                    ? lerp(sample(raw, frame, 1, channels), sample(raw, next, 1, channels), frac)
+                    : left;
+
+            out[i * 4] = (byte) left;
+            out[i * 4 + 1] = (byte) (left >> 8);
+            out[i * 4 + 2] = (byte) right;
+            out[i * 4 + 3] = (byte) (right >> 8);
+        }
+        return out;
+    }
+
+    private static int sample(final byte[] raw, final int frame, final int channel, final int channels) {
+        int index = (frame * channels + channel) * 2;
+        return (short) ((raw[index] & 0xFF) | (raw[index + 1] << 8));
+    }
+
+    private static int lerp(final int a, final int b, final double t) {
+        return (int) Math.round(a + (b - a) * t);
+    }
+}
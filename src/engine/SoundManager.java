@@ -1,123 +1,86 @@
 package engine;
 
-import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.AudioFormat;
-import javax.sound.sampled.Clip;
-import javax.sound.sampled.DataLine;
-import javax.sound.sampled.FloatControl;
-import javax.sound.sampled.LineUnavailableException;
-import javax.sound.sampled.LineEvent;
-import javax.sound.sampled.UnsupportedAudioFileException;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.util.logging.Logger;
 
 /**
  * Minimal sound manager for short SFX.
+ *
+ * Every sound plays as a voice of one shared {@link AudioMixer}, so the game
+ * holds a single output line however many sounds overlap. The mixer buffer
+ * can be set with -Dinvaders.audio.bufferFrames, the polyphony with
+ * -Dinvaders.audio.voices and the output with -Dinvaders.audio.backend.
+ *
+ * Requests are queued to the mixer thread and return immediately; they must
+ * be made from the game thread.
  */
 public final class  SoundManager {
 
     private static final Logger logger = Core.getLogger();
-    private static Clip loopClip;
+    /** Mixer channel of the looped sound (menu music). */
+    private static final int LOOP_CHANNEL = 0;
+
+    /** Holds the shared mixer, started on first use. */
+    private static final class MixerHolder {
+        static final AudioMixer MIXER = createMixer();
+    }
 
     private SoundManager() {
     }
 
+    private static AudioMixer createMixer() {
+        AudioMixer mixer = new AudioMixer(
+                AudioBackend.create(System.getProperty("invaders.audio.backend", "javasound")),
+                Integer.getInteger("invaders.audio.voices", AudioMixer.DEFAULT_VOICES),
+                Integer.getInteger("invaders.audio.bufferFrames", AudioMixer.DEFAULT_BUFFER_FRAMES));
+        mixer.start();
+        mixer.setMasterGain(calculateGain(Core.getVolumeLevel()));
+        return mixer;
+    }
+
     /**
-     * Plays a short WAV from resources folder. Example path: "sound/shoot.wav".
-     * Uses a new Clip per invocation for simplicity; suitable for very short SFX.
+     * Returns the shared mixer, starting it on first use.
+     *
+     * @return Shared mixer.
      */
-    public static void playOnce(String resourcePath) {
-        AudioInputStream audioStream = null;
-        Clip clip = null;
-        try {
-            audioStream = openAudioStream(resourcePath);
-            if (audioStream == null) return;
-            audioStream = toPcmSigned(audioStream);
-            DataLine.Info info = new DataLine.Info(Clip.class, audioStream.getFormat());
-            clip = (Clip) AudioSystem.getLine(info);
-            clip.open(audioStream);
+    static AudioMixer getMixer() {
+        return MixerHolder.MIXER;
+    }
 
-            // Set volume based on user settings
-            if (clip.isControlSupported(FloatControl.Type.MASTER_GAIN)) {
-                FloatControl gain = (FloatControl) clip.getControl(FloatControl.Type.MASTER_GAIN);
-                float volumeDb = calculateVolumeDb(Core.getVolumeLevel());
-                gain.setValue(Math.max(gain.getMinimum(), Math.min(gain.getMaximum(), volumeDb)));
-            }
+    /**
+     * Starts the next game tick; the same sound requested twice in one tick
+     * plays once. Called once per tick by the game loop.
+     */
+    public static void beginTick() {
+        getMixer().beginTick();
+    }
 
-            clip.start();
-            logger.info("Started one-shot sound: " + resourcePath);
-        } catch (UnsupportedAudioFileException | IOException | LineUnavailableException e) {
-            logger.info("Unable to play sound '" + resourcePath + "': " + e.getMessage());
-        } finally {
-            // We can't close 'in' immediately because AudioSystem may stream; rely on clip close
-            if (clip != null) {
-                final Clip c = clip;
-                c.addLineListener(event -> {
-                    LineEvent.Type type = event.getType();
-                    if (type == LineEvent.Type.STOP || type == LineEvent.Type.CLOSE) {
-                        try {
-                            c.close();
-                        } catch (Exception ignored) {}
-                    }
-                });
-            }
-        }
+    /**
+     * Plays a short WAV from resources folder. Example path: "sound/shoot.wav".
+     * The PCM comes from {@link SoundCache}; the same sound requested twice in
+     * one tick plays once.
+     */
+    public static void playOnce(String resourcePath) {
+        GameEvents.soundPlayed("once", resourcePath);
+        Metrics.getInstance().soundPlayed();
+        getMixer().play(resourcePath);
     }
 
     /**
      * Plays a WAV in a loop until {@link #stop()} is called.
      */
     public static void playLoop(String resourcePath) {
-        stop();
         stopBackgroundMusic();
-
-        AudioInputStream audioStream = null;
-        try {
-            audioStream = openAudioStream(resourcePath);
-            if (audioStream == null) return;
-            audioStream = toPcmSigned(audioStream);
-
-            DataLine.Info info = new DataLine.Info(Clip.class, audioStream.getFormat());
-            loopClip = (Clip) AudioSystem.getLine(info);
-            loopClip.open(audioStream);
-
-            // Set volume based on user settings for loops
-            if (loopClip.isControlSupported(FloatControl.Type.MASTER_GAIN)) {
-                FloatControl gain = (FloatControl) loopClip.getControl(FloatControl.Type.MASTER_GAIN);
-                float volumeDb = calculateVolumeDb(Core.getVolumeLevel());
-                gain.setValue(Math.max(gain.getMinimum(), Math.min(gain.getMaximum(), volumeDb)));
-            }
-
-            loopClip.loop(Clip.LOOP_CONTINUOUSLY);
-            loopClip.start();
-            logger.fine("Started looped sound: " + resourcePath);
-        } catch (UnsupportedAudioFileException | IOException | LineUnavailableException e) {
-            logger.fine("Unable to loop sound '" + resourcePath + "': " + e.getMessage());
-            if (loopClip != null) {
-                try { loopClip.close(); } catch (Exception ignored) {}
-                loopClip = null;
-            }
-        }
+        GameEvents.soundPlayed("loop", resourcePath);
+        Metrics.getInstance().soundPlayed();
+        getMixer().loop(LOOP_CHANNEL, resourcePath);
+        logger.fine("Started looped sound: " + resourcePath);
     }
 
     /**
-     * Stops and releases the current looped clip, if any.
+     * Stops the current looped sound, if any.
      */
     public static void stop() {
-        if (loopClip != null) {
-            try {
-                loopClip.stop();
-                loopClip.close();
-            } catch (Exception e) {
-                logger.fine("Error stopping looped sound: " + e.getMessage());
-            } finally {
-                loopClip = null;
-            }
-        }
+        getMixer().stop(LOOP_CHANNEL);
     }
 
     /**
@@ -128,108 +91,55 @@ public final class  SoundManager {
         stop(); // stops looped music
         stopBackgroundMusic(); // stops background music
     }
-    // Background music clip - static to persist across method calls
-    private static Clip backgroundMusicClip = null;
     private static boolean isMusicPlaying = false;
-    private static float musicVolumeDb = -10.0f; // Default music volume
 
     /**
-     * starts playing background music that loops during gameplay
+     * Opens a music track ahead of time so a later
+     * {@link #startBackgroundMusic(String)} does not touch the disk on the
+     * game thread. Safe to call from a background thread.
      */
-    public static void startBackgroundMusic(String musicResourcePath) {
-        // stop any currently playing music (both loop and background music)
-        stop();
-        stopBackgroundMusic();
-
-        InputStream in = null;
-        AudioInputStream audioStream = null;
-
-        try {
-            in = SoundManager.class.getClassLoader().getResourceAsStream(musicResourcePath);
-            if (in == null) {
-                logger.fine("Music resource not found: " + musicResourcePath);
-                return;
-            }
-
-            audioStream = AudioSystem.getAudioInputStream(in);
-            DataLine.Info info = new DataLine.Info(Clip.class, audioStream.getFormat());
-            backgroundMusicClip = (Clip) AudioSystem.getLine(info);
-            backgroundMusicClip.open(audioStream);
-
-            // set looping
-            backgroundMusicClip.loop(Clip.LOOP_CONTINUOUSLY);
-
-            // set music volume based on user settings
-            if (backgroundMusicClip.isControlSupported(FloatControl.Type.MASTER_GAIN)) {
-                FloatControl gain = (FloatControl) backgroundMusicClip.getControl(FloatControl.Type.MASTER_GAIN);
-                float volumeDb = calculateVolumeDb(Core.getVolumeLevel());
-                gain.setValue(Math.max(gain.getMinimum(), Math.min(gain.getMaximum(), volumeDb)));
-            }
-
-            backgroundMusicClip.start();
-            isMusicPlaying = true;
-            logger.fine("Background music started: " + musicResourcePath);
-
-        } catch (UnsupportedAudioFileException | IOException | LineUnavailableException e) {
-            logger.fine("Unable to play background music '" + musicResourcePath + "': " + e.getMessage());
-            cleanupMusicResources();
-        }
+    public static void preloadMusic(String musicResourcePath) {
+        if (!SoundCache.contains(musicResourcePath))
+            MusicStream.prepare(musicResourcePath);
     }
 
     /**
-     * stops the background music and releases resources
+     * starts playing background music that loops during gameplay.
+     * The track is streamed from disk; if it is already playing or paused it
+     * simply continues.
      */
-    public static void stopBackgroundMusic() {
-        if (backgroundMusicClip != null) {
-            try {
-                backgroundMusicClip.stop();
-                backgroundMusicClip.close();
-            } catch (Exception e) {
-                logger.fine("Error stopping background music: " + e.getMessage());
-            } finally {
-                cleanupMusicResources();
-            }
-        }
+    public static void startBackgroundMusic(String musicResourcePath) {
+        // stop the menu loop; the mixer switches tracks itself
+        stop();
+        GameEvents.soundPlayed("music", musicResourcePath);
+        Metrics.getInstance().soundPlayed();
+        getMixer().playMusic(musicResourcePath);
+        isMusicPlaying = getMixer().isRunning();
+        logger.fine("Background music started: " + musicResourcePath);
     }
 
-    private static void cleanupMusicResources() {
-        backgroundMusicClip = null;
+    /**
+     * Pauses the background music, keeping its position.
+     */
+    public static void pauseBackgroundMusic() {
+        getMixer().pauseMusic();
         isMusicPlaying = false;
     }
 
-    /** Opens an audio stream from classpath resources or absolute/relative file path. */
-    private static AudioInputStream openAudioStream(String resourcePath)
-            throws UnsupportedAudioFileException, IOException {
-        InputStream in = SoundManager.class.getClassLoader().getResourceAsStream(resourcePath);
-        if (in != null) {
-            return AudioSystem.getAudioInputStream(in);
-        }
-        // Fallback to file system path for developer/local runs
-        try (FileInputStream fis = new FileInputStream(resourcePath)) {
-            return AudioSystem.getAudioInputStream(fis);
-        } catch (FileNotFoundException e) {
-            logger.fine("Audio resource not found: " + resourcePath);
-            return null;
-        }
+    /**
+     * Resumes the background music where it was paused.
+     */
+    public static void resumeBackgroundMusic() {
+        getMixer().resumeMusic();
+        isMusicPlaying = getMixer().isRunning();
     }
 
-    /** Ensures the audio stream is PCM_SIGNED for Clip compatibility on all JVMs. */
-    private static AudioInputStream toPcmSigned(AudioInputStream source) throws UnsupportedAudioFileException, IOException {
-        AudioFormat format = source.getFormat();
-        if (format.getEncoding() == AudioFormat.Encoding.PCM_SIGNED) {
-            return source;
-        }
-
-        AudioFormat targetFormat = new AudioFormat(
-                AudioFormat.Encoding.PCM_SIGNED,
-                format.getSampleRate(),
-                16,
-                format.getChannels(),
-                format.getChannels() * 2,
-                format.getSampleRate(),
-                false
-        );
-        return AudioSystem.getAudioInputStream(targetFormat, source);
+    /**
+     * stops the background music; the next start plays it from the beginning
+     */
+    public static void stopBackgroundMusic() {
+        getMixer().stopMusic();
+        isMusicPlaying = false;
     }
 
     /**
@@ -237,19 +147,17 @@ public final class  SoundManager {
      * This should be called when the volume slider is changed.
      */
     public static void updateVolume() {
-        float volumeDb = calculateVolumeDb(Core.getVolumeLevel());
-        
-        // Update looped sound volume (menu music)
-        if (loopClip != null && loopClip.isControlSupported(FloatControl.Type.MASTER_GAIN)) {
-            FloatControl gain = (FloatControl) loopClip.getControl(FloatControl.Type.MASTER_GAIN);
-            gain.setValue(Math.max(gain.getMinimum(), Math.min(gain.getMaximum(), volumeDb)));
-        }
-        
-        // Update background music volume (game music)
-        if (backgroundMusicClip != null && backgroundMusicClip.isControlSupported(FloatControl.Type.MASTER_GAIN)) {
-            FloatControl gain = (FloatControl) backgroundMusicClip.getControl(FloatControl.Type.MASTER_GAIN);
-            gain.setValue(Math.max(gain.getMinimum(), Math.min(gain.getMaximum(), volumeDb)));
-        }
+        getMixer().setMasterGain(calculateGain(Core.getVolumeLevel()));
+    }
+
+    /**
+     * Converts the volume level (0-100) to a linear gain for the mixer.
+     *
+     * @param volumeLevel Volume level from 0 to 100
+     * @return Gain from 0 to 1
+     */
+    private static float calculateGain(int volumeLevel) {
+        return (float) Math.pow(10.0, calculateVolumeDb(volumeLevel) / 20.0);
     }
 
     /**
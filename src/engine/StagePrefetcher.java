@@ -0,0 +1,162 @@
+package engine;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import entity.Bullet;
+import entity.BulletPool;
+import entity.EnemyShipFormation;
+import entity.Item;
+import entity.ItemPool;
+
+/**
+ * Builds the next stage on a background thread while the current screen runs,
+ * so a GameScreen can pick up a ready formation instead of allocating it when
+ * the level starts.
+ *
+ * Each prepared stage is handed over once, on the game thread, through
+ * {@link #takeFormation(GameSettings)}.
+ */
+public final class StagePrefetcher {
+
+    /** Number of bullets created ahead of the first stage. */
+    private static final int WARM_BULLETS = 64;
+    /** Number of items created ahead of the first stage. */
+    private static final int WARM_ITEMS = 8;
+
+    /** Singleton instance of the class. */
+    private static StagePrefetcher instance;
+
+    /** Application logger. */
+    private final Logger logger;
+    /** Background worker. */
+    private final ExecutorService executor;
+    /** Stages being prepared or ready, keyed by their settings. */
+    private final Map<GameSettings, Future<PreparedStage>> pending = new ConcurrentHashMap<>();
+    /** Whether the pools have already been warmed. */
+    private boolean poolsWarmed = false;
+
+    /** Objects built ahead of time for one stage. */
+    private static final class PreparedStage {
+        final EnemyShipFormation formation;
+        final Set<Bullet> bullets;
+        final Set<Item> items;
+
+        PreparedStage(final EnemyShipFormation formation,
+                      final Set<Bullet> bullets, final Set<Item> items) {
+            this.formation = formation;
+            this.bullets = bullets;
+            this.items = items;
+        }
+    }
+
+    /**
+     * private constructor.
+     */
+    private StagePrefetcher() {
+        this.logger = Core.getLogger();
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stage-prefetch");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns shared instance of StagePrefetcher.
+     *
+     * @return Shared instance of StagePrefetcher.
+     */
+    public static StagePrefetcher getInstance() {
+        if (instance == null)
+            instance = new StagePrefetcher();
+        return instance;
+    }
+
+    /**
+     * Starts preparing a stage in the background, unless it is already
+     * prepared and not yet taken.
+     *
+     * @param settings
+     *            Settings of the stage to prepare.
+     * @param musicPaths
+     *            Music resources the stage will play, decoded ahead of time.
+     */
+    public void prefetch(final GameSettings settings, final String... musicPaths) {
+        if (pending.containsKey(settings)) return;
+        final boolean warmPools = !poolsWarmed;
+
+        Future<PreparedStage> future = executor.submit(() -> {
+            long start = System.nanoTime();
+
+            EnemyShipFormation formation = new EnemyShipFormation(settings);
+
+            Set<Bullet> bullets = new HashSet<>();
+            Set<Item> items = new HashSet<>();
+            if (warmPools) {
+                for (int i = 0; i < WARM_BULLETS; i++)
+                    bullets.add(new Bullet(0, 0, 0, 0, 0));
+                ItemDB itemDB = ItemDB.getInstance();
+                for (int i = 0; i < WARM_ITEMS && itemDB.size() > 0; i++)
+                    items.add(new Item(i % itemDB.size(), 0, 0, 0));
+            }
+
+            for (String path : musicPaths)
+                SoundManager.preloadMusic(path);
+
+            logger.fine("Prefetched stage in " + (System.nanoTime() - start) / 1000 + " us.");
+            return new PreparedStage(formation, bullets, items);
+        });
+
+        pending.put(settings, future);
+    }
+
+    /**
+     * Drops every prepared stage, e.g. after the stage list was reloaded.
+     */
+    public void clear() {
+        for (Future<PreparedStage> future : pending.values())
+            future.cancel(false);
+        pending.clear();
+    }
+
+    /**
+     * Hands over the prepared formation for the given stage and moves the
+     * warmed bullets and items into their pools. Waits for the background
+     * work if it is still running. Must be called from the game thread.
+     *
+     * @param settings
+     *            Settings of the stage about to start.
+     * @return Prepared formation, or null if this stage was not prefetched.
+     */
+    public EnemyShipFormation takeFormation(final GameSettings settings) {
+        Future<PreparedStage> future = pending.remove(settings);
+        if (future == null) return null;
+
+        PreparedStage stage;
+        try {
+            stage = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            logger.warning("Stage prefetch failed: " + e.getCause());
+            return null;
+        }
+
+        BulletPool.recycle(stage.bullets);
+        ItemPool.recycle(stage.items);
+        if (!stage.bullets.isEmpty())
+            poolsWarmed = true;
+
+        return stage.formation;
+    }
+}
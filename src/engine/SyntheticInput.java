@@ -0,0 +1,101 @@
+package engine;
+
+import java.awt.EventQueue;
+import java.awt.event.KeyEvent;
+import java.util.Random;
+import java.util.logging.Logger;
+
+/**
+ * Test mode that plays the game's keys on a fixed pseudo-random schedule,
+ * so input latency can be compared across pacing changes without a player.
+ *
+ * Enabled with -Dinvaders.input.synthetic=&lt;mean milliseconds between
+ * presses&gt;. Each press holds move left, move right or fire for
+ * HOLD_MILLIS; the schedule uses a fixed seed, so runs are comparable.
+ * Presses are posted to the AWT event thread and go through the same
+ * InputManager path as real key events.
+ */
+public final class SyntheticInput implements Runnable {
+
+    /** How long each key is held. */
+    private static final long HOLD_MILLIS = 50;
+    private static final long SEED = 42;
+
+    private final InputManager input;
+    private final long meanIntervalMillis;
+    private final Random random = new Random(SEED);
+
+    private SyntheticInput(final InputManager input, final long meanIntervalMillis) {
+        this.input = input;
+        this.meanIntervalMillis = meanIntervalMillis;
+    }
+
+    /**
+     * Starts the synthetic player if invaders.input.synthetic is set.
+     *
+     * @param input
+     *            Input manager to press keys on.
+     */
+    static void startIfConfigured(final InputManager input) {
+        Long interval = Long.getLong("invaders.input.synthetic");
+        if (interval == null || interval <= 0) return;
+        start(input, interval);
+    }
+
+    /**
+     * Starts the synthetic player, e.g. from a headless harness.
+     *
+     * @param meanIntervalMillis
+     *            Mean time between two presses.
+     */
+    public static void start(final long meanIntervalMillis) {
+        start(InputManager.getInstance(), meanIntervalMillis);
+    }
+
+    private static void start(final InputManager input, final long meanIntervalMillis) {
+        Logger logger = Core.getLogger();
+        logger.info("Synthetic input: a key press every ~" + meanIntervalMillis + " ms");
+        Thread thread = new Thread(new SyntheticInput(input, meanIntervalMillis), "synthetic-input");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Presses a key as if on the keyboard, for scripted players. Any thread.
+     *
+     * @param keyCode
+     *            Key to press.
+     */
+    public static void press(final int keyCode) {
+        long pressed = System.nanoTime();
+        EventQueue.invokeLater(() -> InputManager.getInstance().press(keyCode, pressed));
+    }
+
+    /**
+     * Releases a key pressed with press(). Any thread.
+     *
+     * @param keyCode
+     *            Key to release.
+     */
+    public static void release(final int keyCode) {
+        long released = System.nanoTime();
+        EventQueue.invokeLater(() -> InputManager.getInstance().release(keyCode, released));
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                Thread.sleep(meanIntervalMillis / 2 + (long) (random.nextDouble() * meanIntervalMillis));
+                int[] keys = input.getPlayer1Keys();
+                int choice = random.nextInt(3);
+                int keyCode = choice == 0 ? keys[0] : choice == 1 ? keys[1] : KeyEvent.VK_SPACE;
+                press(keyCode);
+                Thread.sleep(HOLD_MILLIS);
+                release(keyCode);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
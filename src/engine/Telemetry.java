@@ -0,0 +1,271 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * Records gameplay telemetry for one play session into primitive columns and
+ * writes it to a compact columnar file when the session ends.
+ *
+ * Two tables are recorded: one row per game tick (frame time, ship
+ * position, score, lives, bullet and enemy counts) and one row per event
+ * (shot, hit, kill, item drop, pickup, damage). Recording only stores ints into
+ * growable arrays, so it costs a few nanoseconds per row. Must be used from
+ * the game thread. Disabled with -Dinvaders.telemetry=false.
+ *
+ * File layout (little-endian), read back by {@link TelemetryFile}:
+ * <pre>
+ * int magic "TLM1", short version, long session start (epoch millis),
+ * byte table count, then per table:
+ *   name, int row count, byte column count, then per column:
+ *     name, byte width (1, 2 or 4), row count values of that width
+ * </pre>
+ * Names are a short length followed by UTF-8 bytes.
+ */
+public final class Telemetry {
+
+    /** Event types. */
+    public static final int SHOT = 1;
+    public static final int HIT = 2;
+    public static final int KILL = 3;
+    public static final int PICKUP = 4;
+    public static final int DAMAGE = 5;
+    public static final int DROP = 6;
+
+    /** File magic, "TLM1" in little-endian. */
+    static final int MAGIC = 0x314D4C54;
+    /** 2: level column widened to 2 bytes, for campaigns past 127 stages. */
+    static final short VERSION = 2;
+
+    /** Folder holding the session files. */
+    private static final Path DIRECTORY = Path.of("telemetry");
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    /** Singleton instance of the class. */
+    private static Telemetry instance;
+
+    /** One column of values, stored as ints and written with its width. */
+    private static final class Column {
+        final String name;
+        final int width;
+        int[] data = new int[1024];
+
+        Column(final String name, final int width) {
+            this.name = name;
+            this.width = width;
+        }
+    }
+
+    /** A set of columns sharing a row count. */
+    private static final class Table {
+        final String name;
+        final Column[] columns;
+        int rows;
+
+        Table(final String name, final Column... columns) {
+            this.name = name;
+            this.columns = columns;
+        }
+
+        /** Makes room for one more row. */
+        void grow() {
+            if (rows < columns[0].data.length) return;
+            for (Column column : columns)
+                column.data = Arrays.copyOf(column.data, column.data.length * 2);
+        }
+    }
+
+    private final Logger logger;
+    private final boolean enabled;
+
+    private final Column tickLevel = new Column("level", 2);
+    private final Column tickMillis = new Column("timeMillis", 4);
+    private final Column tickFrameMicros = new Column("frameMicros", 4);
+    private final Column tickShipX = new Column("shipX", 2);
+    private final Column tickShipY = new Column("shipY", 2);
+    private final Column tickScore = new Column("score", 4);
+    private final Column tickLives = new Column("lives", 1);
+    private final Column tickBullets = new Column("bullets", 2);
+    private final Column tickEnemies = new Column("enemies", 2);
+    private final Table ticks = new Table("ticks", tickLevel, tickMillis, tickFrameMicros,
+            tickShipX, tickShipY, tickScore, tickLives, tickBullets, tickEnemies);
+
+    private final Column eventTick = new Column("tick", 4);
+    private final Column eventType = new Column("type", 1);
+    private final Column eventDetail = new Column("detail", 2);
+    private final Column eventX = new Column("x", 2);
+    private final Column eventY = new Column("y", 2);
+    private final Table events = new Table("events", eventTick, eventType, eventDetail, eventX, eventY);
+
+    /** Whether a session is being recorded. */
+    private boolean recording;
+    private long sessionStartMillis;
+
+    /**
+     * private constructor.
+     */
+    private Telemetry() {
+        this.logger = Core.getLogger();
+        this.enabled = !"false".equals(System.getProperty("invaders.telemetry"));
+    }
+
+    /**
+     * Returns shared instance of Telemetry.
+     *
+     * @return Shared instance of Telemetry.
+     */
+    public static Telemetry getInstance() {
+        if (instance == null)
+            instance = new Telemetry();
+        return instance;
+    }
+
+    /**
+     * Starts a new session, discarding anything not yet written.
+     */
+    public void beginSession() {
+        ticks.rows = 0;
+        events.rows = 0;
+        sessionStartMillis = System.currentTimeMillis();
+        recording = enabled;
+    }
+
+    /**
+     * Records one game tick.
+     *
+     * @param level
+     *            Current level.
+     * @param frameNanos
+     *            Time spent updating and drawing this tick.
+     */
+    public void recordTick(final int level, final long frameNanos, final int shipX, final int shipY,
+                           final int score, final int lives, final int bullets, final int enemies) {
+        if (!recording) return;
+        ticks.grow();
+        int row = ticks.rows++;
+        tickLevel.data[row] = level;
+        tickMillis.data[row] = (int) (System.currentTimeMillis() - sessionStartMillis);
+        tickFrameMicros.data[row] = (int) (frameNanos / 1000);
+        tickShipX.data[row] = shipX;
+        tickShipY.data[row] = shipY;
+        tickScore.data[row] = score;
+        tickLives.data[row] = lives;
+        tickBullets.data[row] = bullets;
+        tickEnemies.data[row] = enemies;
+    }
+
+    /**
+     * Records a gameplay event at the current tick.
+     *
+     * @param type
+     *            One of SHOT, HIT, KILL, DROP, PICKUP, DAMAGE.
+     * @param detail
+     *            SpriteType ordinal for hits and kills, item id for drops
+     *            (ItemManager.NO_DROP for a roll on an empty tier, which
+     *            resets pity) and pickups, lives left for damage.
+     * @param x
+     *            Position of the event.
+     * @param y
+     *            Position of the event.
+     */
+    public void recordEvent(final int type, final int detail, final int x, final int y) {
+        if (!recording) return;
+        events.grow();
+        int row = events.rows++;
+        eventTick.data[row] = ticks.rows;
+        eventType.data[row] = type;
+        eventDetail.data[row] = detail;
+        eventX.data[row] = x;
+        eventY.data[row] = y;
+    }
+
+    /**
+     * Ends the session and writes it to telemetry/session-&lt;time&gt;.tlm.
+     *
+     * @return Written file, or null if nothing was recorded or writing failed.
+     */
+    public Path endSession() {
+        if (!recording) return null;
+        recording = false;
+        if (ticks.rows == 0) return null;
+
+        Path file = DIRECTORY.resolve("session-"
+                + LocalDateTime.now().format(STAMP) + "-" + (sessionStartMillis % 1000) + ".tlm");
+        try {
+            Files.createDirectories(DIRECTORY);
+            write(file);
+            Metrics.getInstance().fileWritten();
+            logger.info("Telemetry: " + ticks.rows + " ticks, " + events.rows + " events written to " + file);
+            return file;
+        } catch (IOException e) {
+            logger.warning("Could not write telemetry " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes both tables through a memory-mapped file sized up front.
+     */
+    private void write(final Path file) throws IOException {
+        Table[] tables = {ticks, events};
+        long size = 4 + 2 + 8 + 1;
+        for (Table table : tables) {
+            size += nameSize(table.name) + 4 + 1;
+            for (Column column : table.columns)
+                size += nameSize(column.name) + 1 + (long) column.width * table.rows;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.order(ByteOrder.LITTLE_ENDIAN);
+            out.putInt(MAGIC);
+            out.putShort(VERSION);
+            out.putLong(sessionStartMillis);
+            out.put((byte) tables.length);
+            for (Table table : tables) {
+                putName(out, table.name);
+                out.putInt(table.rows);
+                out.put((byte) table.columns.length);
+                for (Column column : table.columns) {
+                    putName(out, column.name);
+                    out.put((byte) column.width);
+                    int[] data = column.data;
+                    switch (column.width) {
+                        case 1:
+                            for (int i = 0; i < table.rows; i++) out.put((byte) data[i]);
+                            break;
+                        case 2:
+                            for (int i = 0; i < table.rows; i++) out.putShort((short) data[i]);
+                            break;
+                        default:
+                            out.asIntBuffer().put(data, 0, table.rows);
+                            out.position(out.position() + 4 * table.rows);
+                            break;
+                    }
+                }
+            }
+            out.force();
+        }
+    }
+
+    private static int nameSize(final String name) {
+        return 2 + name.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void putName(final MappedByteBuffer out, final String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        out.putShort((short) bytes.length);
+        out.put(bytes);
+    }
+}
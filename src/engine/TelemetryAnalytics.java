@@ -0,0 +1,378 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Offline analytics over a folder of session files written by
+ * {@link Telemetry}.
+ *
+ * Every session is memory-mapped and summarized on the common ForkJoin pool,
+ * and the partial summaries are merged into one JSON report with:
+ * - a heatmap of where the player took damage, in 16 px cells over the
+ *   448x520 playfield,
+ * - per level: attempts, clears, and the clear-time and accuracy
+ *   distributions,
+ * - per item: drop rate per enemy kill, observed vs expected from
+ *   item_db.csv and the pity system,
+ * - per enemy type: histogram of the time into the level it was killed at.
+ *
+ * Expected drops replay the pity counter from the order of kills and drops,
+ * starting every session at pity 0. A drop event for NO_DROP is a roll on an
+ * empty tier: no drop, but pity resets as in ItemManager.
+ *
+ * Usage: java engine.TelemetryAnalytics [telemetry dir] [report.json]
+ */
+public final class TelemetryAnalytics {
+
+    /** Playfield size and heatmap cell size, in pixels. */
+    private static final int WIDTH = 448;
+    private static final int HEIGHT = 520;
+    private static final int CELL = 16;
+    private static final int CELL_COLUMNS = (WIDTH + CELL - 1) / CELL;
+    private static final int CELL_ROWS = (HEIGHT + CELL - 1) / CELL;
+    /** Bucket width of the clear-time and kill-time histograms. */
+    private static final int TIME_BUCKET_MILLIS = 5_000;
+    /** Bucket width of the accuracy histograms. */
+    private static final int ACCURACY_BUCKET_PERCENT = 10;
+
+    /** Bonus ships do not roll the drop table. */
+    private static final int SPECIAL_SHIP = DrawManager.SpriteType.EnemyShipSpecial.ordinal();
+
+    private TelemetryAnalytics() {
+    }
+
+    /** Fixed-width histogram of non-negative values. */
+    static final class Histogram {
+        private final int bucketWidth;
+        private long[] counts = new long[16];
+        private long count;
+        private long sum;
+        private long max;
+
+        Histogram(final int bucketWidth) {
+            this.bucketWidth = bucketWidth;
+        }
+
+        void add(final long value) {
+            int bucket = (int) (Math.max(0, value) / bucketWidth);
+            if (bucket >= counts.length)
+                counts = Arrays.copyOf(counts, Math.max(bucket + 1, counts.length * 2));
+            counts[bucket]++;
+            count++;
+            sum += value;
+            max = Math.max(max, value);
+        }
+
+        void merge(final Histogram other) {
+            if (other.counts.length > counts.length)
+                counts = Arrays.copyOf(counts, other.counts.length);
+            for (int i = 0; i < other.counts.length; i++)
+                counts[i] += other.counts[i];
+            count += other.count;
+            sum += other.sum;
+            max = Math.max(max, other.max);
+        }
+
+        /** Upper bound of the bucket holding the given quantile, at most the largest value. */
+        long percentile(final double quantile) {
+            long rank = (long) Math.ceil(quantile * count);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && seen > 0)
+                    return Math.min((long) (i + 1) * bucketWidth, max);
+            }
+            return 0;
+        }
+
+        String toJson() {
+            int last = counts.length - 1;
+            while (last >= 0 && counts[last] == 0) last--;
+            StringBuilder buckets = new StringBuilder();
+            for (int i = 0; i <= last; i++) {
+                if (i > 0) buckets.append(", ");
+                buckets.append(counts[i]);
+            }
+            return String.format(Locale.ROOT,
+                    "{\"count\": %d, \"mean\": %.1f, \"p50\": %d, \"p90\": %d, \"p99\": %d, "
+                            + "\"bucketWidth\": %d, \"buckets\": [%s]}",
+                    count, count == 0 ? 0.0 : (double) sum / count,
+                    percentile(0.50), percentile(0.90), percentile(0.99), bucketWidth, buckets);
+        }
+    }
+
+    /** Results of one level across sessions. */
+    static final class LevelStats {
+        long attempts;
+        long clears;
+        long shots;
+        long hits;
+        final Histogram clearMillis = new Histogram(TIME_BUCKET_MILLIS);
+        final Histogram accuracyPercent = new Histogram(ACCURACY_BUCKET_PERCENT);
+
+        void merge(final LevelStats other) {
+            attempts += other.attempts;
+            clears += other.clears;
+            shots += other.shots;
+            hits += other.hits;
+            clearMillis.merge(other.clearMillis);
+            accuracyPercent.merge(other.accuracyPercent);
+        }
+    }
+
+    /** Summary of some sessions; filled by one thread, then merged. */
+    static final class Summary {
+        long sessions;
+        long skipped;
+        final long[] deaths = new long[CELL_COLUMNS * CELL_ROWS];
+        final Map<Integer, LevelStats> levels = new TreeMap<>();
+        final Map<String, Histogram> killMillis = new TreeMap<>();
+        /** Drop rolls per pity level, and outcomes (0 = no drop, i + 1 = item i). */
+        final long[] rollsPerPityLevel;
+        final long[] outcomes;
+
+        Summary(final int pityLevels, final int itemCount) {
+            this.rollsPerPityLevel = new long[pityLevels];
+            this.outcomes = new long[itemCount + 1];
+        }
+
+        void merge(final Summary other) {
+            sessions += other.sessions;
+            skipped += other.skipped;
+            for (int i = 0; i < deaths.length; i++)
+                deaths[i] += other.deaths[i];
+            other.levels.forEach((level, stats) ->
+                    levels.computeIfAbsent(level, l -> new LevelStats()).merge(stats));
+            other.killMillis.forEach((type, histogram) ->
+                    killMillis.computeIfAbsent(type, t -> new Histogram(TIME_BUCKET_MILLIS)).merge(histogram));
+            for (int i = 0; i < rollsPerPityLevel.length; i++)
+                rollsPerPityLevel[i] += other.rollsPerPityLevel[i];
+            for (int i = 0; i < outcomes.length; i++)
+                outcomes[i] += other.outcomes[i];
+        }
+
+        /** Reads one session file and adds it; unreadable files are counted and skipped. */
+        void add(final Path file) {
+            try {
+                add(TelemetryFile.read(file));
+                sessions++;
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Skipping " + file + ": " + e.getMessage());
+                skipped++;
+            }
+        }
+
+        /**
+         * Adds one session, walking its levels in tick order and the events
+         * of each level alongside.
+         */
+        void add(final TelemetryFile session) {
+            TelemetryFile.Table ticks = session.getTable("ticks");
+            int[] level = ticks.getColumn("level");
+            int[] millis = ticks.getColumn("timeMillis");
+            int[] enemies = ticks.getColumn("enemies");
+            TelemetryFile.Table events = session.getTable("events");
+            int[] tick = events.getColumn("tick");
+            int[] type = events.getColumn("type");
+            int[] detail = events.getColumn("detail");
+            int[] x = events.getColumn("x");
+            int[] y = events.getColumn("y");
+
+            int tickRows = ticks.getRows();
+            int eventRows = events.getRows();
+            int event = 0;
+            int pity = 0;
+            for (int start = 0; start < tickRows; ) {
+                int end = start;
+                while (end + 1 < tickRows && level[end + 1] == level[start]) end++;
+                // Events after the last tick belong to the last level.
+                long lastTick = end + 1 == tickRows ? Long.MAX_VALUE : end;
+                long shots = 0;
+                long hits = 0;
+
+                for (; event < eventRows && tick[event] <= lastTick; event++) {
+                    switch (type[event]) {
+                        case Telemetry.SHOT:
+                            shots++;
+                            break;
+                        case Telemetry.HIT:
+                            hits++;
+                            break;
+                        case Telemetry.KILL:
+                            hits++;
+                            int at = Math.min(tick[event], end);
+                            killMillis.computeIfAbsent(enemyType(detail[event]), t -> new Histogram(TIME_BUCKET_MILLIS))
+                                    .add(millis[at] - millis[start]);
+                            if (detail[event] != SPECIAL_SHIP) {
+                                rollsPerPityLevel[Math.min(pity, rollsPerPityLevel.length - 1)]++;
+                                boolean dropped = event + 1 < eventRows && type[event + 1] == Telemetry.DROP;
+                                if (!dropped) {
+                                    outcomes[0]++;
+                                    pity++;
+                                }
+                            }
+                            break;
+                        case Telemetry.DROP:
+                            // NO_DROP: a roll on a tier without items, no drop but a pity reset.
+                            if (detail[event] == ItemManager.NO_DROP)
+                                outcomes[0]++;
+                            else if (detail[event] >= 0 && detail[event] + 1 < outcomes.length)
+                                outcomes[detail[event] + 1]++;
+                            pity = 0;
+                            break;
+                        case Telemetry.DAMAGE:
+                            int column = Math.min(Math.max(x[event], 0) / CELL, CELL_COLUMNS - 1);
+                            int row = Math.min(Math.max(y[event], 0) / CELL, CELL_ROWS - 1);
+                            deaths[row * CELL_COLUMNS + column]++;
+                            break;
+                        default:
+                            break;
+                    }
+                }
+
+                LevelStats stats = levels.computeIfAbsent(level[start], l -> new LevelStats());
+                stats.attempts++;
+                if (enemies[end] == 0) {
+                    stats.clears++;
+                    stats.clearMillis.add(millis[end] - millis[start]);
+                }
+                // Triple shot fires several bullets per shot event.
+                if (shots > 0)
+                    stats.accuracyPercent.add(Math.min(100, 100 * hits / shots));
+                stats.shots += shots;
+                stats.hits += hits;
+                start = end + 1;
+            }
+        }
+    }
+
+    /**
+     * Enemy type of a sprite ordinal; both animation forms of an enemy
+     * count as one type.
+     */
+    private static String enemyType(final int spriteOrdinal) {
+        DrawManager.SpriteType[] types = DrawManager.SpriteType.values();
+        if (spriteOrdinal < 0 || spriteOrdinal >= types.length)
+            return "Unknown";
+        return types[spriteOrdinal].name().replaceFirst("\\d$", "");
+    }
+
+    /**
+     * Summarizes every session file of a folder in parallel.
+     *
+     * @param directory
+     *            Folder of .tlm files.
+     * @param pityLevels
+     *            Number of pity levels of the drop tables.
+     * @param itemCount
+     *            Number of items in item_db.csv.
+     * @return Merged summary.
+     * @throws IOException
+     *             If the folder cannot be listed.
+     */
+    static Summary summarize(final Path directory, final int pityLevels, final int itemCount)
+            throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(path -> path.getFileName().toString().endsWith(".tlm"))
+                    .collect(Collectors.toList());
+        }
+        // Listed up front: a directory stream splits poorly across threads.
+        return files.parallelStream().collect(
+                () -> new Summary(pityLevels, itemCount), Summary::add, Summary::merge);
+    }
+
+    /**
+     * Runs the analysis and writes the report.
+     *
+     * @param args
+     *            Optional telemetry folder, "telemetry" by default, and
+     *            report path, "telemetry-report.json" by default.
+     * @throws IOException
+     *             If the folder or item_db.csv cannot be read, or the report
+     *             cannot be written.
+     */
+    public static void main(final String[] args) throws IOException {
+        Path directory = Path.of(args.length > 0 ? args[0] : "telemetry");
+        Path reportPath = Path.of(args.length > 1 ? args[1] : "telemetry-report.json");
+
+        ItemDB itemDB = ItemDB.load();
+        double[][] probabilities = ItemManager.dropProbabilities(itemDB);
+
+        long startNanos = System.nanoTime();
+        Summary summary = summarize(directory, probabilities.length, itemDB.size());
+        long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"sessions\": ").append(summary.sessions).append(",\n");
+        json.append("  \"skipped\": ").append(summary.skipped).append(",\n");
+        json.append("  \"elapsedMillis\": ").append(elapsedMillis).append(",\n");
+
+        json.append("  \"deathHeatmap\": {\"cell\": ").append(CELL)
+                .append(", \"width\": ").append(WIDTH).append(", \"height\": ").append(HEIGHT)
+                .append(", \"rows\": [\n");
+        for (int row = 0; row < CELL_ROWS; row++) {
+            json.append("    ").append(Arrays.toString(
+                    Arrays.copyOfRange(summary.deaths, row * CELL_COLUMNS, (row + 1) * CELL_COLUMNS)));
+            json.append(row + 1 < CELL_ROWS ? ",\n" : "\n");
+        }
+        json.append("  ]},\n");
+
+        json.append("  \"levels\": {\n");
+        int remaining = summary.levels.size();
+        for (Map.Entry<Integer, LevelStats> entry : summary.levels.entrySet()) {
+            LevelStats stats = entry.getValue();
+            json.append(String.format(Locale.ROOT,
+                    "    \"%d\": {\"attempts\": %d, \"clears\": %d, \"shots\": %d, \"hits\": %d, "
+                            + "\"accuracy\": %.3f,%n      \"clearMillis\": %s,%n      \"accuracyPercent\": %s}",
+                    entry.getKey(), stats.attempts, stats.clears, stats.shots, stats.hits,
+                    stats.shots == 0 ? 0.0 : (double) stats.hits / stats.shots,
+                    stats.clearMillis.toJson(), stats.accuracyPercent.toJson()));
+            json.append(--remaining > 0 ? ",\n" : "\n");
+        }
+        json.append("  },\n");
+
+        long rolls = Arrays.stream(summary.rollsPerPityLevel).sum();
+        json.append("  \"drops\": {\"rolls\": ").append(rolls).append(", \"items\": {\n");
+        for (int outcome = 0; outcome <= itemDB.size(); outcome++) {
+            double expected = 0.0;
+            for (int level = 0; level < probabilities.length; level++)
+                expected += summary.rollsPerPityLevel[level] * probabilities[level][outcome];
+            long observed = summary.outcomes[outcome];
+            String name = outcome == 0 ? "NONE" : itemDB.getItemData(outcome - 1).getType();
+            json.append(String.format(Locale.ROOT,
+                    "    \"%s\": {\"observed\": %d, \"expected\": %.1f, \"observedRate\": %.4f, "
+                            + "\"expectedRate\": %.4f, \"deviation\": %.2f}",
+                    name, observed, expected,
+                    rolls == 0 ? 0.0 : (double) observed / rolls,
+                    rolls == 0 ? 0.0 : expected / rolls,
+                    expected > 0.0 ? (observed - expected) / Math.sqrt(expected) : 0.0));
+            json.append(outcome < itemDB.size() ? ",\n" : "\n");
+        }
+        json.append("  }},\n");
+
+        json.append("  \"killMillis\": {\n");
+        remaining = summary.killMillis.size();
+        for (Map.Entry<String, Histogram> entry : summary.killMillis.entrySet()) {
+            json.append("    \"").append(entry.getKey()).append("\": ").append(entry.getValue().toJson());
+            json.append(--remaining > 0 ? ",\n" : "\n");
+        }
+        json.append("  }\n");
+        json.append("}\n");
+
+        Files.writeString(reportPath, json, StandardCharsets.UTF_8);
+        System.out.println(summary.sessions + " sessions (" + summary.skipped + " skipped) in "
+                + elapsedMillis + " ms, report written to " + reportPath.toAbsolutePath());
+    }
+}
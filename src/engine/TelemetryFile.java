@@ -0,0 +1,129 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A session file written by {@link Telemetry}, read back into int columns.
+ */
+public final class TelemetryFile {
+
+    /** Column values of one table, keyed by column name in file order. */
+    public static final class Table {
+        private final int rows;
+        private final Map<String, int[]> columns = new LinkedHashMap<>();
+
+        Table(final int rows) {
+            this.rows = rows;
+        }
+
+        /**
+         * @return Number of rows.
+         */
+        public int getRows() {
+            return rows;
+        }
+
+        /**
+         * @param name
+         *            Column name.
+         * @return Column values, one per row.
+         * @throws IllegalArgumentException
+         *             If the table has no such column.
+         */
+        public int[] getColumn(final String name) {
+            int[] column = columns.get(name);
+            if (column == null)
+                throw new IllegalArgumentException("No column " + name);
+            return column;
+        }
+    }
+
+    private final long sessionStartMillis;
+    private final Map<String, Table> tables = new LinkedHashMap<>();
+
+    private TelemetryFile(final long sessionStartMillis) {
+        this.sessionStartMillis = sessionStartMillis;
+    }
+
+    /**
+     * Reads a session file through a memory map.
+     *
+     * @param file
+     *            Session file.
+     * @return Parsed session.
+     * @throws IOException
+     *             If the file cannot be read or is not a telemetry file.
+     */
+    public static TelemetryFile read(final Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            in.order(ByteOrder.LITTLE_ENDIAN);
+            if (in.remaining() < 15 || in.getInt() != Telemetry.MAGIC)
+                throw new IOException(file + " is not a telemetry file");
+            short version = in.getShort();
+            // Columns carry their width, so version 1 files read the same way.
+            if (version < 1 || version > Telemetry.VERSION)
+                throw new IOException(file + " has unsupported version " + version);
+
+            TelemetryFile session = new TelemetryFile(in.getLong());
+            int tableCount = in.get();
+            for (int t = 0; t < tableCount; t++) {
+                String tableName = getName(in);
+                Table table = new Table(in.getInt());
+                int columnCount = in.get();
+                for (int c = 0; c < columnCount; c++) {
+                    String columnName = getName(in);
+                    int width = in.get();
+                    int[] values = new int[table.rows];
+                    for (int i = 0; i < values.length; i++) {
+                        switch (width) {
+                            case 1: values[i] = in.get(); break;
+                            case 2: values[i] = in.getShort(); break;
+                            default: values[i] = in.getInt(); break;
+                        }
+                    }
+                    table.columns.put(columnName, values);
+                }
+                session.tables.put(tableName, table);
+            }
+            return session;
+        } catch (RuntimeException e) {
+            throw new IOException(file + " is truncated or corrupt", e);
+        }
+    }
+
+    private static String getName(final ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return Session start, epoch milliseconds.
+     */
+    public long getSessionStartMillis() {
+        return sessionStartMillis;
+    }
+
+    /**
+     * @param name
+     *            "ticks" or "events".
+     * @return The table.
+     * @throws IllegalArgumentException
+     *             If the file has no such table.
+     */
+    public Table getTable(final String name) {
+        Table table = tables.get(name);
+        if (table == null)
+            throw new IllegalArgumentException("No table " + name);
+        return table;
+    }
+}
@@ -2,6 +2,8 @@ package entity;
 
 import java.util.HashSet;
 import java.util.Set;
+import engine.GameEvents;
+import engine.Metrics;
 import entity.Entity.Team;
 /**
  * Implements a pool of recyclable bullets.
@@ -47,10 +49,13 @@ public final class BulletPool {
         if (!pool.isEmpty()) {
             bullet = pool.iterator().next();
             pool.remove(bullet);
+            Metrics.getInstance().poolHit();
             bullet.setPositionX(positionX - width / 2);
             bullet.setPositionY(positionY);
             bullet.setSpeed(speed);
         } else {
+            GameEvents.poolMiss("bullet");
+            Metrics.getInstance().poolMiss();
             bullet = new Bullet(positionX, positionY, width, height, speed);
             bullet.setPositionX(positionX - width / 2);
         }
@@ -69,4 +74,11 @@ public final class BulletPool {
     public static void recycle(final Set<Bullet> bullet) {
         pool.addAll(bullet);
     }
-}
\ No newline at end of file
+
+    /**
+     * @return Number of bullets waiting in the pool.
+     */
+    public static int size() {
+        return pool.size();
+    }
+}
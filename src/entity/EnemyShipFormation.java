@@ -5,6 +5,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import engine.*;
@@ -50,6 +51,8 @@ public class EnemyShipFormation implements Iterable<EnemyShip> {
     private final DrawManager drawManager;
     /** Application logger. */
     private final Logger logger;
+    /** Logged on every direction change, limited to a few lines per second. */
+    private static final LogSite DIRECTION_LOG = new LogSite(Level.INFO, "Formation now moving {0}", 2);
     /** Screen to draw ships on. */
     private Screen screen;
 
@@ -243,30 +246,30 @@ public class EnemyShipFormation implements Iterable<EnemyShip> {
                 if (isAtHorizontalAltitude)
                     if (previousDirection == Direction.RIGHT) {
                         currentDirection = Direction.LEFT;
-                        this.logger.info("Formation now moving left 1");
+                        DIRECTION_LOG.log("left 1");
                     } else {
                         currentDirection = Direction.RIGHT;
-                        this.logger.info("Formation now moving right 2");
+                        DIRECTION_LOG.log("right 2");
                     }
             } else if (currentDirection == Direction.LEFT) {
                 if (isAtLeftSide)
                     if (!isAtBottom) {
                         previousDirection = currentDirection;
                         currentDirection = Direction.DOWN;
-                        this.logger.info("Formation now moving down 3");
+                        DIRECTION_LOG.log("down 3");
                     } else {
                         currentDirection = Direction.RIGHT;
-                        this.logger.info("Formation now moving right 4");
+                        DIRECTION_LOG.log("right 4");
                     }
             } else {
                 if (isAtRightSide)
                     if (!isAtBottom) {
                         previousDirection = currentDirection;
                         currentDirection = Direction.DOWN;
-                        this.logger.info("Formation now moving down 5");
+                        DIRECTION_LOG.log("down 5");
                     } else {
                         currentDirection = Direction.LEFT;
-                        this.logger.info("Formation now moving left 6");
+                        DIRECTION_LOG.log("left 6");
                     }
             }
 
@@ -4,7 +4,6 @@ import java.awt.Color;
 import java.util.logging.Logger;
 
 import engine.Core;
-import engine.DrawManager.SpriteType;
 
 import engine.GameState;
 import engine.ItemDB;
@@ -19,8 +18,8 @@ public class Item extends Entity {
     /** Logger instance for logging purposes. */
     private final Logger logger;
 
-    /** Type of Item. */
-    private String type;
+    /** Id of the Item in the ItemDB registry. */
+    private int itemId;
 
     /** Item Movement Speed. */
     private int itemSpeed;
@@ -28,8 +27,8 @@ public class Item extends Entity {
     /**
      * Constructor, establishes the Item's properties.
      *
-     * @param itemType
-     *            Type of Item being spawned
+     * @param itemId
+     *            ItemDB id of the Item being spawned
      *
      * @param positionX
      *            Initial position of the Item in the X axis.
@@ -40,13 +39,13 @@ public class Item extends Entity {
      *            direction - positive is down.
      */
 
-    public Item(String itemType, final int positionX, final int positionY, final int speed) {
+    public Item(final int itemId, final int positionX, final int positionY, final int speed) {
 
         super(positionX, positionY, 3 * 2, 5 * 2, Color.WHITE);
 
         logger = Core.getLogger();
 
-        this.type = itemType;
+        this.itemId = itemId;
         this.itemSpeed = speed;
 
         setSprite();
@@ -56,19 +55,7 @@ public class Item extends Entity {
      * Setter for the sprite of the Item using data from ItemDB.
      */
     public final void setSprite() {
-        ItemDB itemDB = new ItemDB();
-        ItemData data = itemDB.getItemData(this.type);
-
-        if (data != null) {
-            try {
-                this.spriteType = SpriteType.valueOf(data.getSpriteType());
-            } catch (IllegalArgumentException e) {
-                this.spriteType = SpriteType.ItemScore; // fallback
-                this.logger.warning("[Item]: Unknown sprite type in ItemDB: " + data.getSpriteType() + ", using default.");
-            }
-        } else {
-            this.spriteType = SpriteType.ItemScore;
-        }
+        this.spriteType = ItemDB.getInstance().getSpriteType(this.itemId);
     }
 
     /**
@@ -84,47 +71,23 @@ public class Item extends Entity {
      * @param gameState current game state instance.
      */
     public void applyEffect(final GameState gameState) {
-        ItemDB itemDB = new ItemDB();
-        ItemData data = itemDB.getItemData(this.type);
+        ItemDB itemDB = ItemDB.getInstance();
+        ItemData data = itemDB.getItemData(this.itemId);
 
         if (data == null) return;
 
-        int value = data.getEffectValue();
-        int duration = data.getEffectDuration();
-        int cost = data.getCost();
+        ItemEffect.Handler handler = itemDB.getEffectHandler(this.itemId);
+        if (handler == null) {
+            this.logger.warning("[Item]: No ItemEffect for type " + data.getType());
+            return;
+        }
 
-        boolean applied = false;
         /* item data always true to apply because free
         * duration item will apply if enough coins*/
-        switch (this.type) {
-            case "COIN":
-                ItemEffect.applyCoinItem(gameState, value);
-                applied = true;
-                break;
-            case "HEAL":
-                ItemEffect.applyHealItem(gameState, value);
-                applied = true;
-                break;
-            case "SCORE":
-                ItemEffect.applyScoreItem(gameState, value);
-                applied = true;
-                break;
-            case "TRIPLESHOT":
-                applied = ItemEffect.applyTripleShot(gameState, value, duration,cost);
-                break;
-            case "SCOREBOOST":
-                applied = ItemEffect.applyScoreBoost(gameState, value, duration,cost);
-                break;
-            case "BULLETSPEEDUP":
-                applied = ItemEffect.applyBulletSpeedUp(gameState, value, duration, cost);
-                break;
-            default:
-                this.logger.warning("[Item]: No ItemEffect for type " + this.type);
-                break;
-        }
+        boolean applied = handler.apply(gameState, data);
         if (!applied) {
             // Player couldn't afford the item (or other failure).
-            logger.info("[Item]: Player " + " couldn't afford " + this.type + " (cost=" + cost + ")");
+            logger.info("[Item]: Player " + " couldn't afford " + data.getType() + " (cost=" + data.getCost() + ")");
         }
     }
 
@@ -149,23 +112,33 @@ public class Item extends Entity {
 
     /**
      * Reset the Item.
-     * Set the item type and sprite to newType, and the speed to 0.
+     * Set the item id and sprite to newItemId, and the speed to 0.
      *
-     * @param newType
-     *            new type of the Item.
+     * @param newItemId
+     *            new ItemDB id of the Item.
      */
-    public final void reset(String newType) {
-        this.type = newType;
+    public final void reset(final int newItemId) {
+        this.itemId = newItemId;
         this.itemSpeed = 0;
-        setSprite(); // change to your enum if different
+        setSprite();
+    }
+
+    /**
+     * Getter for the ItemDB id of the Item.
+     *
+     * @return id of the Item.
+     */
+    public final int getItemId() {
+        return this.itemId;
     }
 
     /**
-     * Getter for the speed of the Item.
+     * Getter for the type name of the Item.
      *
-     * @return type of the Item.
+     * @return type of the Item, or "UNKNOWN" if the id is not registered.
      */
     public final String getType() {
-        return this.type;
+        ItemData data = ItemDB.getInstance().getItemData(this.itemId);
+        return (data != null) ? data.getType() : "UNKNOWN";
     }
-}
\ No newline at end of file
+}
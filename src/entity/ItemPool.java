@@ -1,6 +1,8 @@
 package entity;
 
+import engine.GameEvents;
 import engine.ItemData;
+import engine.Metrics;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -36,19 +38,22 @@ public final class ItemPool {
      * @return Requested item.
      */
     public static Item getItem(ItemData data, int positionX, int positionY, int speed) {
-        String type = data.getType();
+        int itemId = data.getId();
         // create new item
         Item item;
         if (!pool.isEmpty()) {
             item = pool.iterator().next();
             pool.remove(item);
+            Metrics.getInstance().poolHit();
 
-            item.reset(type);
+            item.reset(itemId);
             item.setPositionX(positionX - item.getWidth() / 2);
             item.setPositionY(positionY);
             item.setItemSpeed(speed);
         } else {
-            item = new Item(type, positionX - 3, positionY, speed);
+            GameEvents.poolMiss("item");
+            Metrics.getInstance().poolMiss();
+            item = new Item(itemId, positionX - 3, positionY, speed);
         }
 
         return item;
@@ -64,4 +69,11 @@ public final class ItemPool {
         if (items == null) return;
         pool.addAll(items);
     }
-}
\ No newline at end of file
+
+    /**
+     * @return Number of items waiting in the pool.
+     */
+    public static int size() {
+        return pool.size();
+    }
+}
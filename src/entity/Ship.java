@@ -2,10 +2,12 @@ package entity;
 
 import java.awt.Color;
 import java.util.Set;
+import java.util.logging.Level;
 
 import engine.Cooldown;
 import engine.Core;
 import engine.GameState;
+import engine.LogSite;
 import engine.DrawManager.SpriteType;
 
 import static engine.ItemEffect.ItemEffectType.*;
@@ -33,6 +35,11 @@ public class Ship extends Entity {
     private static final int SHIP_HEIGHT = 16;
     private static final int DESTRUCTION_COOLDOWN = 1000;
 
+    /** Hot-path log statements, limited to a few lines per second. */
+    private static final LogSite SHOOT_LOG = new LogSite(Level.INFO, "[Ship] Shooting :{0}", 5);
+    private static final LogSite BULLET_SPEED_LOG = new LogSite(Level.INFO, "[Ship] Item effect: Faster Bullets", 1);
+    private static final LogSite TRIPLE_SHOT_LOG = new LogSite(Level.INFO, "[Ship] Item effect: TRIPLESHOT", 1);
+
     /** Types of ships. */
     public enum ShipType {
         NORMAL,         // Bullet size is normal, and moving speed is normal.
@@ -142,7 +149,7 @@ public class Ship extends Entity {
         if (!this.shootingCooldown.checkFinished()) { return false; }
 
         this.shootingCooldown.reset();
-        Core.getLogger().info("[Ship] Shooting :" + this.type);
+        SHOOT_LOG.log(this.type);
 
         int bulletX = positionX + this.width / 2;
         int bulletY = this.positionY - this.bulletHeight;
@@ -246,7 +253,7 @@ public class Ship extends Entity {
 
         Integer effectValue = gameState.getEffectValue(BULLETSPEEDUP);
         if (effectValue != null) {
-            Core.getLogger().info("[Ship] Item effect: Faster Bullets");
+            BULLET_SPEED_LOG.log();
             return effectValue;
         }
         return 1;
@@ -260,7 +267,7 @@ public class Ship extends Entity {
      * TRIPLESHOT effect
      */
     private void shootTripleShot(final Set<Bullet> bullets, final int centerX, final int bulletY) {
-        Core.getLogger().info("[Ship] Item effect: TRIPLESHOT");
+        TRIPLE_SHOT_LOG.log();
         Integer TRIPLE_SHOT_OFFSET = gameState.getEffectValue(TRIPLESHOT);
 
         addBullet(bullets, centerX, bulletY);
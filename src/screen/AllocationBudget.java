@@ -0,0 +1,280 @@
+package screen;
+
+import engine.Core;
+import engine.DrawManager;
+import engine.FrameProfiler;
+import engine.GameEvents;
+import engine.GameSettings;
+import engine.GameState;
+import engine.InputManager;
+import engine.SoundManager;
+import engine.SyntheticInput;
+import entity.Ship;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Allocation budget check of the game loop.
+ *
+ * Plays every stage of res/level.csv headless for a number of ticks, with
+ * SyntheticInput at the controls, and measures the bytes the game thread
+ * allocates per tick: in the render phases of the frame (FrameProfiler
+ * DRAW_* phases) and in everything else, the simulation. The run fails if
+ * the mean of either, over any stage, is over its budget; the top
+ * allocating call sites of the game thread in the phase over budget, from
+ * a JFR allocation sample taken during the run, are printed then.
+ *
+ * Ticks run at the game's frame rate, since cooldowns follow the wall
+ * clock. A stage that ends early (cleared or lost) is restarted until it
+ * has played its ticks.
+ *
+ * Usage, from the project root with the classes in out/:
+ * <pre>
+ * java -cp out:res screen.AllocationBudget [ticks per stage]
+ * </pre>
+ * Budgets in bytes per tick: -Dinvaders.budget.simulation,
+ * -Dinvaders.budget.render. Exits with status 1 when over budget.
+ */
+public final class AllocationBudget {
+
+    private static final int WIDTH = 448;
+    private static final int HEIGHT = 520;
+    private static final int FPS = 60;
+    private static final int DEFAULT_TICKS = 2_000;
+    /** Ticks played before measuring, for class loading and JIT. */
+    private static final int WARMUP_TICKS = 300;
+    /** Mean time between two bot key presses. */
+    private static final long BOT_INTERVAL_MILLIS = 150;
+    /** Default budgets, in bytes per tick. */
+    private static final long DEFAULT_SIMULATION_BUDGET = 3 * 1024;
+    private static final long DEFAULT_RENDER_BUDGET = 896 * 1024;
+    /** Call sites printed on failure. */
+    private static final int TOP_SITES = 15;
+
+    /** Source of per-thread allocation counters. */
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private AllocationBudget() {
+    }
+
+    /** Bytes allocated per tick by one phase over one stage. */
+    private static final class Samples {
+        private final long[] bytes;
+        private int count;
+
+        /** Preallocated, so recording does not show up in the measurement. */
+        Samples(final int ticks) {
+            bytes = new long[ticks];
+        }
+
+        void add(final long value) {
+            bytes[count++] = value;
+        }
+
+        double mean() {
+            long sum = 0;
+            for (int i = 0; i < count; i++) sum += bytes[i];
+            return count == 0 ? 0 : sum / (double) count;
+        }
+
+        long percentile(final double quantile) {
+            long[] sorted = Arrays.copyOf(bytes, count);
+            Arrays.sort(sorted);
+            return count == 0 ? 0 : sorted[Math.min(count - 1, (int) (count * quantile))];
+        }
+    }
+
+    /**
+     * Runs the check.
+     *
+     * @param args
+     *            Optional ticks per stage.
+     */
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        int ticksPerStage = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_TICKS;
+        long simulationBudget = Long.getLong("invaders.budget.simulation", DEFAULT_SIMULATION_BUDGET);
+        long renderBudget = Long.getLong("invaders.budget.render", DEFAULT_RENDER_BUDGET);
+        setDefault("java.awt.headless", "true");
+        setDefault("invaders.audio.backend", "null");
+        setDefault("invaders.blackbox", "false");
+        Core.getLogger().setLevel(Level.WARNING);
+
+        FrameProfiler profiler = FrameProfiler.getInstance();
+        if (!profiler.setAllocationTracking(true)) {
+            System.err.println("This JVM cannot count allocations per thread.");
+            System.exit(2);
+        }
+        InputManager input = Core.getInputManager();
+        SyntheticInput.start(BOT_INTERVAL_MILLIS);
+        List<GameSettings> stages = GameSettings.getGameSettings();
+
+        play(stages.get(0), 1, WARMUP_TICKS, input, profiler, null, null);
+
+        Recording recording = new Recording();
+        recording.enable("jdk.ObjectAllocationSample").withStackTrace().with("throttle", "1000/s");
+        // FrameProfiler would otherwise allocate a Frame event every tick, charged to simulation.
+        recording.disable(GameEvents.Frame.class);
+        recording.start();
+
+        boolean simulationOver = false;
+        boolean renderOver = false;
+        System.out.printf(Locale.ROOT, "%-6s %6s  %28s  %28s%n", "stage", "ticks",
+                "simulation B/tick mean/p99/max", "render B/tick mean/p99/max");
+        for (int i = 0; i < stages.size(); i++) {
+            Samples simulation = new Samples(ticksPerStage);
+            Samples render = new Samples(ticksPerStage);
+            play(stages.get(i), i + 1, ticksPerStage, input, profiler, simulation, render);
+            boolean over = simulation.mean() > simulationBudget || render.mean() > renderBudget;
+            simulationOver |= simulation.mean() > simulationBudget;
+            renderOver |= render.mean() > renderBudget;
+            System.out.printf(Locale.ROOT, "%-6d %6d  %10.0f %8d %8d  %10.0f %8d %8d%s%n", i + 1,
+                    simulation.count, simulation.mean(), simulation.percentile(0.99), simulation.percentile(1.0),
+                    render.mean(), render.percentile(0.99), render.percentile(1.0),
+                    over ? "  OVER BUDGET" : "");
+        }
+        recording.stop();
+        System.out.printf(Locale.ROOT, "Budgets: simulation %d B/tick, render %d B/tick%n",
+                simulationBudget, renderBudget);
+
+        boolean failed = simulationOver || renderOver;
+        if (failed) {
+            Path dump = Files.createTempFile("allocation-budget", ".jfr");
+            recording.dump(dump);
+            printTopSites(dump, Thread.currentThread().getName(), simulationOver, renderOver);
+            Files.deleteIfExists(dump);
+        }
+        recording.close();
+        System.out.println(failed ? "FAILED" : "PASSED");
+        System.exit(failed ? 1 : 0);
+    }
+
+    /**
+     * Plays a stage for a number of ticks, restarting it when it ends.
+     * Samples are not recorded if null.
+     */
+    private static void play(final GameSettings settings, final int level, final int ticks,
+                             final InputManager input, final FrameProfiler profiler,
+                             final Samples simulation, final Samples render) throws InterruptedException {
+        GameScreen screen = null;
+        for (int tick = 0; tick < ticks; tick++) {
+            if (screen == null || !screen.isRunning) {
+                screen = new GameScreen(new GameState(level, 3, 0), settings, false,
+                        WIDTH, HEIGHT, FPS, Ship.ShipType.NORMAL, null);
+                screen.initialize();
+                screen.isRunning = true;
+            }
+            long start = System.currentTimeMillis();
+            long before = THREAD_BEAN.getCurrentThreadAllocatedBytes();
+            input.poll();
+            SoundManager.beginTick();
+            screen.update();
+            long total = THREAD_BEAN.getCurrentThreadAllocatedBytes() - before;
+
+            if (simulation != null) {
+                long drawn = 0;
+                for (int phase = FrameProfiler.DRAW_STARFIELD; phase <= FrameProfiler.DRAW_PRESENT; phase++)
+                    drawn += profiler.getLastFrameAllocatedBytes(phase);
+                render.add(drawn);
+                simulation.add(total - drawn);
+            }
+
+            long sleep = 1000 / FPS - (System.currentTimeMillis() - start);
+            if (sleep > 0)
+                TimeUnit.MILLISECONDS.sleep(sleep);
+        }
+    }
+
+    /**
+     * Prints the game code locations that allocated the most on the given
+     * thread, by sampled weight, for each phase that went over budget.
+     */
+    private static void printTopSites(final Path dump, final String thread,
+                                      final boolean simulation, final boolean render) throws IOException {
+        // [0] simulation, [1] render.
+        List<Map<String, Long>> bytesBySite = List.of(new HashMap<>(), new HashMap<>());
+        Map<String, String> classBySite = new HashMap<>();
+        long[] total = new long[2];
+        for (RecordedEvent event : RecordingFile.readAllEvents(dump)) {
+            if (!event.getEventType().getName().equals("jdk.ObjectAllocationSample")) continue;
+            if (event.getThread() == null || !thread.equals(event.getThread().getJavaName())) continue;
+            long weight = event.getLong("weight");
+            String site = gameFrame(event);
+            // The harness itself; the first sample also carries whatever came before the recording.
+            if (site.startsWith(AllocationBudget.class.getName())) continue;
+            int phase = isRender(event) ? 1 : 0;
+            bytesBySite.get(phase).merge(site, weight, Long::sum);
+            classBySite.putIfAbsent(site, event.getClass("objectClass").getName());
+            total[phase] += weight;
+        }
+
+        String[] names = {"simulation", "render"};
+        boolean[] over = {simulation, render};
+        for (int phase = 0; phase < 2; phase++) {
+            if (!over[phase]) continue;
+            List<Map.Entry<String, Long>> sites = new ArrayList<>(bytesBySite.get(phase).entrySet());
+            sites.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+            System.out.println("Top allocating " + names[phase] + " call sites of the game thread (JFR sample):");
+            for (int i = 0; i < Math.min(TOP_SITES, sites.size()); i++) {
+                Map.Entry<String, Long> site = sites.get(i);
+                System.out.printf(Locale.ROOT, "  %5.1f%%  %10d KB  %-60s %s%n",
+                        total[phase] == 0 ? 0.0 : site.getValue() * 100.0 / total[phase], site.getValue() / 1024,
+                        site.getKey(), classBySite.get(site.getKey()));
+            }
+        }
+    }
+
+    /**
+     * @return Whether the allocation happened while drawing, the DRAW_*
+     *         phases of FrameProfiler: under GameScreen.draw, or in
+     *         DrawManager if the stack was cut short.
+     */
+    private static boolean isRender(final RecordedEvent event) {
+        if (event.getStackTrace() == null) return false;
+        for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (type.equals(GameScreen.class.getName()) && frame.getMethod().getName().equals("draw")
+                    || type.equals(DrawManager.class.getName()))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return Innermost frame of the stack that is game code, or the
+     *         innermost frame if there is none.
+     */
+    private static String gameFrame(final RecordedEvent event) {
+        if (event.getStackTrace() == null) return "(no stack)";
+        List<RecordedFrame> frames = event.getStackTrace().getFrames();
+        for (RecordedFrame frame : frames) {
+            String type = frame.getMethod().getType().getName();
+            if (type.startsWith("java.") || type.startsWith("javax.") || type.startsWith("jdk.")
+                    || type.startsWith("sun.") || type.startsWith("com.sun.")) continue;
+            return type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+        }
+        RecordedFrame top = frames.isEmpty() ? null : frames.get(0);
+        return top == null ? "(no stack)"
+                : top.getMethod().getType().getName() + "." + top.getMethod().getName();
+    }
+
+    private static void setDefault(final String key, final String value) {
+        if (System.getProperty(key) == null)
+            System.setProperty(key, value);
+    }
+}
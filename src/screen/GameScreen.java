@@ -2,6 +2,7 @@ package screen;
 
 import java.awt.event.KeyEvent;
 import java.util.HashSet;
+import java.util.Locale;
 import java.util.Set;
 
 import engine.Cooldown;
@@ -45,11 +46,24 @@ public class GameScreen extends Screen {
     /** Height of the interface separation line. */
     private static final int SEPARATION_LINE_HEIGHT = 68;
       private static final int HIGH_SCORE_NOTICE_DURATION = 2000;
+    /** Background music played during the level. */
+    public static final String BACKGROUND_MUSIC = "sound/SpaceInvader-GameTheme.wav";
     private static boolean sessionHighScoreNotified = false;
 
     /** For Check Achievement
      * 2015-10-02 add new */
     private AchievementManager achievementManager;
+    /** Gameplay telemetry of the current session. */
+    private final Telemetry telemetry = Telemetry.getInstance();
+    /** Per-phase frame timings, shown with F3. */
+    private final FrameProfiler profiler = FrameProfiler.getInstance();
+    /** Counters and histograms scraped over JMX. */
+    private final Metrics metrics = Metrics.getInstance();
+    private Cooldown profilerCooldown;
+    /** Last seconds of frames, dumped on hitches. */
+    private final FrameBlackBox blackBox = FrameBlackBox.getInstance();
+    /** Key-to-simulation and key-to-present timing. */
+    private final InputLatency inputLatency = InputLatency.getInstance();
     /** Current game difficulty settings. */
     private GameSettings gameSettings;
     /** Current difficulty level number. */
@@ -160,9 +174,12 @@ public class GameScreen extends Screen {
         state.clearAllEffects();
 
         // Start background music for gameplay
-        SoundManager.startBackgroundMusic("sound/SpaceInvader-GameTheme.wav");
+        SoundManager.startBackgroundMusic(BACKGROUND_MUSIC);
 
-        enemyShipFormation = new EnemyShipFormation(this.gameSettings);
+        // Use the formation built in the background if this stage was prefetched.
+        enemyShipFormation = StagePrefetcher.getInstance().takeFormation(this.gameSettings);
+        if (enemyShipFormation == null)
+            enemyShipFormation = new EnemyShipFormation(this.gameSettings);
         enemyShipFormation.attach(this);
 
         this.ship = new Ship(this.width / 2 - 60, this.height - 30, Entity.Team.PLAYER, shipType, this.state); // P1
@@ -185,6 +202,9 @@ public class GameScreen extends Screen {
         this.isPaused = false;
         this.pauseCooldown = Core.getCooldown(300);
         this.returnMenuCooldown = Core.getCooldown(300);
+        this.profilerCooldown = Core.getCooldown(300);
+        blackBox.resetInterval();
+        inputLatency.reset();
     }
 
 
@@ -203,6 +223,11 @@ public class GameScreen extends Screen {
         SoundManager.stopAllMusic();
 
         this.logger.info("Screen cleared with a score of " + state.getScore());
+        ItemManager.getInstance().logDropStats();
+        this.logger.info(String.format(Locale.ROOT, "Input latency: key-to-simulation p50 %.0f ms p99 %.0f ms,"
+                + " key-to-present p50 %.0f ms p99 %.0f ms", metrics.getInputToSimulationP50Millis(),
+                metrics.getInputToSimulationP99Millis(), metrics.getInputToPresentP50Millis(),
+                metrics.getInputToPresentP99Millis()));
         return this.returnCode;
     }
 
@@ -210,8 +235,16 @@ public class GameScreen extends Screen {
      * Updates the elements on screen and checks for events.
      */
     protected final void update() {
+        long tickStart = System.nanoTime();
+        profiler.beginFrame();
+        blackBox.beginFrame();
         super.update();
 
+        if (inputManager.isKeyDown(KeyEvent.VK_F3) && this.profilerCooldown.checkFinished()) {
+            profiler.toggle();
+            this.profilerCooldown.reset();
+        }
+
         // Countdown beep once during pre-start
         if (!this.inputDelay.checkFinished() && !countdownSoundPlayed) {
             long elapsed = System.currentTimeMillis() - this.gameStartTime;
@@ -227,10 +260,10 @@ public class GameScreen extends Screen {
 
             if (this.isPaused) {
                 // Pause game music when pausing - no sound during pause
-                SoundManager.stopBackgroundMusic();
+                SoundManager.pauseBackgroundMusic();
             } else {
-                // Resume game music when unpausing
-                SoundManager.startBackgroundMusic("sound/SpaceInvader-GameTheme.wav");
+                // Resume game music where it was paused
+                SoundManager.resumeBackgroundMusic();
             }
         }
         if (this.isPaused && inputManager.isKeyDown(KeyEvent.VK_BACK_SPACE) && this.returnMenuCooldown.checkFinished()) {
@@ -245,6 +278,8 @@ public class GameScreen extends Screen {
             return;
         }
 
+        // Keys pressed since the last tick are acted on from here on.
+        inputLatency.tick(!this.isPaused && this.inputDelay.checkFinished() && !this.levelFinished);
         if (!this.isPaused) {
             if (this.inputDelay.checkFinished() && !this.levelFinished) {
                 boolean moveRight, moveLeft, fire;
@@ -265,9 +300,12 @@ public class GameScreen extends Screen {
 
                 if (fire && ship.shoot(this.bullets)) {
                     SoundManager.playOnce("sound/shoot.wav");
+                    telemetry.recordEvent(Telemetry.SHOT, 0, ship.getPositionX(), ship.getPositionY());
+                    metrics.bulletFired();
                     state.incBulletsShot(); // 2P mode: increments per-player bullet shots
                 }
             }
+            profiler.lap(FrameProfiler.INPUT);
             // Special ship lifecycle
             if (this.enemyShipSpecial != null) {
                 if (!this.enemyShipSpecial.isDestroyed())
@@ -297,17 +335,21 @@ public class GameScreen extends Screen {
                 SoundManager.playOnce("sound/shoot_enemies.wav");
             }
         }
+        profiler.lap(FrameProfiler.UPDATE);
 
         manageCollisions();
+        profiler.lap(FrameProfiler.COLLISIONS);
         cleanBullets();
 
         // Item Entity Code
         cleanItems();
         manageItemPickups();
+        profiler.lap(FrameProfiler.CLEANUP);
 
         // check active item affects
         state.updateEffects();
         drawManager.setLastLife(state.getLives() == 1);
+        profiler.lap(FrameProfiler.EFFECTS);
         draw();
 
         if (!sessionHighScoreNotified && this.state.getScore() > this.topScore) {
@@ -333,7 +375,29 @@ public class GameScreen extends Screen {
         }
         if (this.achievementManager != null) this.achievementManager.update();
         checkAchievement();
+        profiler.lap(FrameProfiler.EFFECTS);
         draw();
+
+        long frameNanos = System.nanoTime() - tickStart;
+        telemetry.recordTick(state.getLevel(), frameNanos,
+                ship.getPositionX(), ship.getPositionY(), state.getScore(), state.getLives(),
+                this.bullets.size(), this.enemyShipFormation.getShipCount());
+        metrics.recordFrame(frameNanos, this.enemyShipFormation.getShipCount() + this.bullets.size()
+                + this.items.size() + (this.enemyShipSpecial != null ? 2 : 1));
+        int ships = this.enemyShipFormation.getShipCount() + (this.enemyShipSpecial != null ? 2 : 1);
+        int particles = drawManager.getParticleCount();
+        profiler.endFrame(ships, this.bullets.size(), BulletPool.size() + ItemPool.size(), particles);
+        blackBox.endFrame(profiler, ships, this.bullets.size(), particles, heldKeys());
+    }
+
+    /**
+     * @return FrameBlackBox key bits of the keys held this frame.
+     */
+    private int heldKeys() {
+        return (inputManager.isP1LeftPressed() ? FrameBlackBox.KEY_LEFT : 0)
+                | (inputManager.isP1RightPressed() ? FrameBlackBox.KEY_RIGHT : 0)
+                | (inputManager.isKeyDown(KeyEvent.VK_SPACE) ? FrameBlackBox.KEY_FIRE : 0)
+                | (inputManager.isKeyDown(KeyEvent.VK_ESCAPE) ? FrameBlackBox.KEY_PAUSE : 0);
     }
 
     /**
@@ -341,9 +405,12 @@ public class GameScreen extends Screen {
      */
     private void draw() {
         drawManager.initDrawing(this);
+        profiler.lap(FrameProfiler.DRAW_STARFIELD);
 
         drawManager.drawExplosions();
+        profiler.lap(FrameProfiler.DRAW_EXPLOSIONS);
         drawManager.updateGameSpace();
+        profiler.lap(FrameProfiler.DRAW_STARFIELD);
 
         drawManager.drawEntity(ship, ship.getPositionX(), ship.getPositionY());
 
@@ -362,6 +429,7 @@ public class GameScreen extends Screen {
         for (Item item : this.items)
             drawManager.drawEntity(item, item.getPositionX(),
                     item.getPositionY());
+        profiler.lap(FrameProfiler.DRAW_ENTITIES);
 
 		// Aggregate UI (team score & team lives)
 		drawManager.drawScore(this, state.getScore());
@@ -412,8 +480,13 @@ public class GameScreen extends Screen {
                     this.height / 2 + 60
             );
 		}
+        if (profiler.isVisible())
+            drawManager.drawFrameProfiler(this, profiler);
+        profiler.lap(FrameProfiler.DRAW_HUD);
 
         drawManager.completeDrawing(this);
+        inputLatency.presented();
+        profiler.lap(FrameProfiler.DRAW_PRESENT);
     }
 
     /**
@@ -455,6 +528,7 @@ public class GameScreen extends Screen {
                 collected.add(item);
                 this.logger.info("Player " + " picked up item: " + item.getType());
                 SoundManager.playOnce("sound/hover.wav");
+                telemetry.recordEvent(Telemetry.PICKUP, item.getItemId(), item.getPositionX(), item.getPositionY());
                 item.applyEffect(getGameState());
             }
         }
@@ -467,6 +541,10 @@ public class GameScreen extends Screen {
      * → add score.
      */
     private void manageCollisions() {
+        long collisionStart = System.nanoTime();
+        GameEvents.Collisions collisions = new GameEvents.Collisions();
+        collisions.begin();
+        int bulletCount = this.bullets.size();
         Set<Bullet> recyclable = new HashSet<Bullet>();
         for (Bullet bullet : this.bullets) {
             if (bullet.getSpeed() > 0) {
@@ -479,6 +557,7 @@ public class GameScreen extends Screen {
                     ship.destroy(); // explosion/respawn handled by Ship.update()
                     SoundManager.playOnce("sound/explosion.wav");
                     state.decLife(); // decrement shared/team lives by 1
+                    telemetry.recordEvent(Telemetry.DAMAGE, state.getLives(), ship.getPositionX(), ship.getPositionY());
 
                     // Record damage for Survivor achievement check
                     this.tookDamageThisLevel = true;
@@ -498,9 +577,13 @@ public class GameScreen extends Screen {
                 for (EnemyShip enemyShip : this.enemyShipFormation) {
                     if (!enemyShip.isDestroyed() && checkCollision(bullet, enemyShip)) {
                         recyclable.add(bullet);
+                        int spriteType = enemyShip.getSpriteType().ordinal(); // before hit() turns it into an explosion
                         enemyShip.hit();
+                        telemetry.recordEvent(enemyShip.isDestroyed() ? Telemetry.KILL : Telemetry.HIT,
+                                spriteType, enemyShip.getPositionX(), enemyShip.getPositionY());
 
                         if (enemyShip.isDestroyed()) {
+                            metrics.enemyKilled();
                             int points = enemyShip.getPointValue();
                             state.addCoins(enemyShip.getCoinValue()); // 2P mode: modified to per-player coins
 
@@ -512,7 +595,12 @@ public class GameScreen extends Screen {
                             Item drop = engine.ItemManager.getInstance().obtainDrop(enemyShip);
                             if (drop != null) {
                                 this.items.add(drop);
+                                telemetry.recordEvent(Telemetry.DROP, drop.getItemId(), drop.getPositionX(), drop.getPositionY());
                                 this.logger.info("Spawned " + drop.getType() + " at " + drop.getPositionX() + "," + drop.getPositionY());
+                            } else if (engine.ItemManager.getInstance().getPityCounter() == 0) {
+                                // Rolled a tier without items: nothing drops, but pity was reset.
+                                telemetry.recordEvent(Telemetry.DROP, engine.ItemManager.NO_DROP,
+                                        enemyShip.getPositionX(), enemyShip.getPositionY());
                             }
 
                             this.enemyShipFormation.destroy(enemyShip);
@@ -530,7 +618,10 @@ public class GameScreen extends Screen {
 
                     state.addScore(points);
                     state.incShipsDestroyed(); // 2P mode: modified incrementing ships destroyed
+                    metrics.enemyKilled();
 
+                    telemetry.recordEvent(Telemetry.KILL, this.enemyShipSpecial.getSpriteType().ordinal(),
+                            this.enemyShipSpecial.getPositionX(), this.enemyShipSpecial.getPositionY());
 					this.enemyShipSpecial.destroy();
                     SoundManager.stop();
                     SoundManager.playOnce("sound/explosion.wav");
@@ -540,6 +631,14 @@ public class GameScreen extends Screen {
                 }
             }
         }
+        metrics.recordCollisions(System.nanoTime() - collisionStart);
+        collisions.end();
+        if (collisions.shouldCommit()) {
+            collisions.bullets = bulletCount;
+            collisions.targets = this.enemyShipFormation.getShipCount();
+            collisions.hits = recyclable.size();
+            collisions.commit();
+        }
         this.bullets.removeAll(recyclable);
         BulletPool.recycle(recyclable);
     }
@@ -8,6 +8,7 @@ import engine.Cooldown;
 import engine.Core;
 import engine.DrawManager;
 import engine.InputManager;
+import engine.SoundManager;
 
 /**
  * Implements a generic screen.
@@ -39,9 +40,9 @@ public class Screen {
 	protected Cooldown inputDelay;
 
 	/** If the screen is running. */
-	protected boolean isRunning;
+	protected volatile boolean isRunning;
 	/** What kind of screen goes next. */
-	protected int returnCode;
+	protected volatile int returnCode;
 
 	/**
 	 * Constructor, establishes the properties of the screen.
@@ -84,6 +85,8 @@ public class Screen {
 		while (this.isRunning) {
 			long time = System.currentTimeMillis();
 
+			this.inputManager.poll();
+			SoundManager.beginTick();
 			update();
 
 			time = (1000 / this.fps) - (System.currentTimeMillis() - time);
@@ -122,4 +125,13 @@ public class Screen {
 	public final int getHeight() {
 		return this.height;
 	}
+
+	/**
+	 * Getter for the frame rate the screen runs at.
+	 *
+	 * @return Frames per second.
+	 */
+	public final int getFps() {
+		return this.fps;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,395 @@
+package screen;
+
+import engine.Core;
+import engine.Metrics;
+import engine.SoundCache;
+import engine.SyntheticInput;
+import entity.BulletPool;
+import entity.ItemPool;
+
+import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.Mixer;
+
+/**
+ * Long-running soak test: plays the game for hours, headless, and looks
+ * for resources that keep growing.
+ *
+ * It runs the game's own screen loop, Core.runScreens, so stage
+ * prefetching, resource reloads and achievements work as in the game. A
+ * scripted player is at the keyboard: it goes through the title menu
+ * (play, achievements, high scores, settings), picks a ship, moves and
+ * fires during games, pauses and resumes now and then, and leaves the score
+ * screen. Drawing goes to the offscreen back buffer. Scores, achievements
+ * and telemetry are saved as in a normal game, so run it from a scratch
+ * copy of the game directory.
+ *
+ * Every sample interval it records heap after a full GC, BulletPool and
+ * ItemPool sizes, live explosions, open audio lines, open file descriptors,
+ * threads and the p50/p99 frame time of the interval, into
+ * soak/soak-&lt;time&gt;.csv. At the end, the run is cut in quarters; a
+ * metric whose quarter averages never go down and end well above where they
+ * started is reported as a leak, and the run exits with status 1.
+ *
+ * Usage, from the project root with the classes in out/:
+ * <pre>
+ * java -cp out:res screen.SoakTest [minutes]
+ * </pre>
+ * -Dinvaders.soak.sampleSeconds sets the sample interval, 60 by default.
+ */
+public final class SoakTest {
+
+    private static final int WIDTH = 448;
+    private static final int HEIGHT = 520;
+    private static final int DEFAULT_MINUTES = 60;
+    /** Longest a menu screen or a level may run before the bot is considered stuck. */
+    private static final long MENU_TIMEOUT_MILLIS = 60_000;
+    private static final long LEVEL_TIMEOUT_MILLIS = 15 * 60_000;
+    /** Samples dropped from the start of the leak check, as warmup. */
+    private static final double WARMUP_FRACTION = 0.1;
+    /** Fewest samples needed for the leak check. */
+    private static final int MIN_SAMPLES = 8;
+    /** A metric is growing if the averages of these slices of the run never go down. */
+    private static final int QUARTERS = 4;
+
+    /** Title menu entries the bot picks on successive visits: play, achievements, high scores, settings. */
+    private static final int[] TITLE_PLAN = {0, 0, 1, 0, 0, 2, 0, 0, 3};
+
+    /** Metrics sampled, and the growth from first to last quarter tolerated for each. */
+    private static final String[] METRICS = {"heapAfterGcMB", "bulletPool", "itemPool", "explosions",
+            "audioLines", "openFiles", "threads", "frameP50Millis", "frameP99Millis"};
+    private static final double[] SLACK = {4, 16, 16, 5, 1, 5, 2, 2, 4};
+
+    private static final Logger LOGGER = Core.getLogger();
+
+    /** Screen being played, read by the bot. */
+    private static volatile Screen current;
+    /** Screens that did not finish in time. */
+    private static int stuckScreens;
+    /** Games started and levels played. */
+    private static int games;
+    private static int levels;
+    /** Set by the sampler once the run has lasted long enough. */
+    private static volatile boolean finished;
+
+    /** Frame buckets at the previous sample, to get the frame times of one interval. */
+    private static Metrics lastMetrics;
+    private static long[] lastBuckets;
+
+    private SoakTest() {
+    }
+
+    /**
+     * Runs the soak test.
+     *
+     * @param args
+     *            Optional duration in minutes.
+     */
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        long minutes = args.length > 0 ? Long.parseLong(args[0]) : DEFAULT_MINUTES;
+        long sampleMillis = Long.getLong("invaders.soak.sampleSeconds", 60) * 1000;
+        if (System.getProperty("java.awt.headless") == null)
+            System.setProperty("java.awt.headless", "true");
+        LOGGER.setLevel(Level.WARNING);
+        SoundCache.preloadAll();
+
+        Path csv = Path.of("soak", "soak-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".csv");
+        Files.createDirectories(csv.getParent());
+        Files.writeString(csv, "minute," + String.join(",", METRICS) + "\n", StandardCharsets.UTF_8);
+
+        Thread bot = new Thread(SoakTest::bot, "soak-bot");
+        bot.setDaemon(true);
+        bot.start();
+        List<double[]> samples = new ArrayList<>();
+        long end = System.currentTimeMillis() + minutes * 60_000;
+        Thread sampler = new Thread(() -> sampler(csv, sampleMillis, end, samples), "soak-sampler");
+        sampler.setDaemon(true);
+        sampler.start();
+
+        // The game's own screen loop, with the screens run here instead of on a window.
+        do {
+            Core.runScreens(SoakTest::play, WIDTH, HEIGHT);
+        } while (!finished);
+        sampler.join();
+
+        System.out.printf(Locale.ROOT, "Soak: %d minutes, %d games, %d levels, %d samples, %d stuck screens,"
+                + " timeline in %s%n", minutes, games, levels, samples.size(), stuckScreens, csv.toAbsolutePath());
+        boolean leaking = report(samples);
+        System.exit(leaking || stuckScreens > 0 ? 1 : 0);
+    }
+
+    /**
+     * Runs a screen until it closes or times out, the way Frame.setScreen
+     * does. Once the run is over, screens return at once with the code that
+     * leads Core back to the title screen and out.
+     *
+     * @return Screen code it returned; 1 (title) if it timed out.
+     */
+    private static int play(final Screen screen) {
+        if (finished) return exitCode(screen);
+        if (screen instanceof GameScreen game) {
+            levels++;
+            if (game.getGameState().getLevel() == 1) games++;
+        }
+        long deadline = System.currentTimeMillis()
+                + (screen instanceof GameScreen ? LEVEL_TIMEOUT_MILLIS : MENU_TIMEOUT_MILLIS);
+        screen.initialize();
+        current = screen;
+        // Screen.run() returns once isRunning is cleared; a watchdog clears it on timeout.
+        Thread watchdog = new Thread(() -> {
+            try {
+                while (System.currentTimeMillis() < deadline)
+                    Thread.sleep(1000);
+                if (screen.isRunning) {
+                    LOGGER.warning("Soak: " + screen.getClass().getSimpleName() + " did not finish in time");
+                    stop(screen, 1);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "soak-watchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+        int code = screen.run();
+        watchdog.interrupt();
+        if (System.currentTimeMillis() >= deadline) stuckScreens++;
+        return code;
+    }
+
+    /**
+     * @return Code that ends Core's screen loop: exit from the title
+     *         screen, back to the title from any other.
+     */
+    private static int exitCode(final Screen screen) {
+        return screen instanceof TitleScreen ? 0 : 1;
+    }
+
+    /** Closes a screen from another thread. */
+    private static void stop(final Screen screen, final int code) {
+        screen.returnCode = code;
+        screen.isRunning = false;
+    }
+
+    /**
+     * Scripted player: looks at the current screen and presses what gets it
+     * through to the next one.
+     */
+    private static void bot() {
+        Random random = new Random(7);
+        int titleVisits = 0;
+        Screen handled = null;
+        long lastPause = System.currentTimeMillis();
+        try {
+            while (true) {
+                Screen screen = current;
+                if (screen instanceof GameScreen) {
+                    if (System.currentTimeMillis() - lastPause > 45_000) {
+                        tap(KeyEvent.VK_ESCAPE);
+                        Thread.sleep(3_000);
+                        tap(KeyEvent.VK_ESCAPE);
+                        lastPause = System.currentTimeMillis();
+                    }
+                    int[] keys = Core.getInputManager().getPlayer1Keys();
+                    int move = keys[random.nextInt(2)];
+                    SyntheticInput.press(KeyEvent.VK_SPACE);
+                    SyntheticInput.press(move);
+                    Thread.sleep(100 + random.nextInt(300));
+                    SyntheticInput.release(move);
+                    SyntheticInput.release(KeyEvent.VK_SPACE);
+                    Thread.sleep(30);
+                    continue;
+                }
+                if (screen == null || screen == handled) {
+                    // Keep trying if the screen did not react.
+                    Thread.sleep(3_000);
+                    if (screen != null && screen == current) handled = null;
+                    continue;
+                }
+                // Menus ignore input for their first second.
+                Thread.sleep(1_500);
+                if (screen instanceof TitleScreen) {
+                    int entry = TITLE_PLAN[titleVisits++ % TITLE_PLAN.length];
+                    for (int i = 0; i < entry; i++)
+                        tap(KeyEvent.VK_DOWN);
+                    tap(KeyEvent.VK_SPACE);
+                } else if (screen instanceof PlayScreen || screen instanceof ShipSelectionScreen) {
+                    tap(KeyEvent.VK_SPACE);
+                } else {
+                    // Score, high score, achievement and setting screens.
+                    tap(KeyEvent.VK_ESCAPE);
+                }
+                handled = screen;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void tap(final int keyCode) throws InterruptedException {
+        SyntheticInput.press(keyCode);
+        Thread.sleep(80);
+        SyntheticInput.release(keyCode);
+        Thread.sleep(400);
+    }
+
+    /**
+     * Samples every interval until the end of the run, then stops the
+     * screen being played.
+     */
+    private static void sampler(final Path csv, final long sampleMillis, final long end,
+                                final List<double[]> samples) {
+        long start = System.currentTimeMillis();
+        try {
+            for (long next = start + sampleMillis; next <= end; next += sampleMillis) {
+                Thread.sleep(Math.max(0, next - System.currentTimeMillis()));
+                samples.add(sample(csv, start));
+            }
+            Thread.sleep(Math.max(0, end - System.currentTimeMillis()));
+        } catch (IOException e) {
+            LOGGER.warning("Soak: cannot write " + csv + ": " + e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finished = true;
+        Screen screen = current;
+        if (screen != null)
+            stop(screen, exitCode(screen));
+    }
+
+    /**
+     * Takes one sample, after a full GC, and appends it to the timeline.
+     */
+    private static double[] sample(final Path csv, final long start) throws IOException {
+        System.gc();
+        long heapAfterGc = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (pool.getType() == MemoryType.HEAP && usage != null)
+                heapAfterGc += usage.getUsed();
+        }
+        int audioLines = 0;
+        for (Mixer.Info info : AudioSystem.getMixerInfo()) {
+            try {
+                audioLines += AudioSystem.getMixer(info).getSourceLines().length;
+            } catch (IllegalArgumentException | SecurityException e) {
+                // Mixer went away or is not accessible.
+            }
+        }
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        long openFiles = os instanceof com.sun.management.UnixOperatingSystemMXBean unix
+                ? unix.getOpenFileDescriptorCount() : -1;
+        double[] frame = frameTimes();
+
+        double[] values = {heapAfterGc / (1024.0 * 1024.0), BulletPool.size(), ItemPool.size(),
+                Core.getDrawManager().getExplosionCount(), audioLines, openFiles,
+                ManagementFactory.getThreadMXBean().getThreadCount(), frame[0], frame[1]};
+        StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "%.1f",
+                (System.currentTimeMillis() - start) / 60_000.0));
+        for (double value : values)
+            line.append(Double.isNaN(value) ? "," : String.format(Locale.ROOT, ",%.2f", value));
+        Files.writeString(csv, line.append('\n'), StandardCharsets.UTF_8, java.nio.file.StandardOpenOption.APPEND);
+        return values;
+    }
+
+    /**
+     * @return p50 and p99 frame time, in milliseconds, since the previous
+     *         sample, from the Metrics frame histogram; NaN if no frame was
+     *         played since.
+     */
+    private static double[] frameTimes() {
+        Metrics metrics = Metrics.getInstance();
+        long[] buckets = metrics.getFrameTimeBuckets();
+        long[] interval = buckets.clone();
+        if (metrics == lastMetrics)
+            for (int i = 0; i < interval.length; i++)
+                interval[i] -= lastBuckets[i];
+        lastMetrics = metrics;
+        lastBuckets = buckets;
+
+        double[] bounds = metrics.getFrameTimeBoundsMillis();
+        long total = 0;
+        for (long count : interval) total += count;
+        if (total == 0)
+            return new double[] {Double.NaN, Double.NaN}; // no game played in this interval
+        return new double[] {bucketPercentile(interval, bounds, total, 0.50),
+                bucketPercentile(interval, bounds, total, 0.99)};
+    }
+
+    /**
+     * @return Upper bound of the bucket holding the quantile; the last
+     *         bound twice over for the overflow bucket.
+     */
+    private static double bucketPercentile(final long[] counts, final double[] bounds, final long total,
+                                           final double quantile) {
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0)
+                return i < bounds.length ? bounds[i] : bounds[bounds.length - 1] * 2;
+        }
+        return 0;
+    }
+
+    /**
+     * Prints the trend of every metric and flags the ones that keep growing.
+     *
+     * @return Whether any metric looks like a leak.
+     */
+    private static boolean report(final List<double[]> samples) {
+        int from = (int) (samples.size() * WARMUP_FRACTION);
+        if (samples.size() - from < MIN_SAMPLES) {
+            System.out.println("Too few samples for a leak check; run longer or sample more often.");
+            return false;
+        }
+        boolean leaking = false;
+        System.out.printf(Locale.ROOT, "%-16s %9s %9s %9s %9s %9s%n", "metric", "q1", "q2", "q3", "q4", "max");
+        for (int m = 0; m < METRICS.length; m++) {
+            // Frame times are missing for intervals spent in menus.
+            List<Double> series = new ArrayList<>();
+            for (double[] sample : samples.subList(from, samples.size()))
+                if (!Double.isNaN(sample[m])) series.add(sample[m]);
+            if (series.size() < MIN_SAMPLES) {
+                System.out.printf(Locale.ROOT, "%-16s %9s%n", METRICS[m], "too few samples");
+                continue;
+            }
+            // Quarter averages, so a sawtooth (GC, game sessions) does not hide or fake a trend.
+            double[] quarters = new double[QUARTERS];
+            int[] counts = new int[QUARTERS];
+            double max = 0;
+            for (int i = 0; i < series.size(); i++) {
+                int q = i * QUARTERS / series.size();
+                quarters[q] += series.get(i);
+                counts[q]++;
+                max = Math.max(max, series.get(i));
+            }
+            for (int q = 0; q < QUARTERS; q++)
+                quarters[q] /= counts[q];
+            boolean growing = quarters[QUARTERS - 1] > quarters[0] + SLACK[m];
+            for (int q = 1; q < QUARTERS; q++)
+                growing &= quarters[q] >= quarters[q - 1];
+            leaking |= growing;
+            System.out.printf(Locale.ROOT, "%-16s %9.2f %9.2f %9.2f %9.2f %9.2f%s%n", METRICS[m],
+                    quarters[0], quarters[1], quarters[2], quarters[3], max, growing ? "  GROWING" : "");
+        }
+        System.out.println(leaking ? "Possible leak: see the metrics marked GROWING." : "No growth found.");
+        return leaking;
+    }
+}